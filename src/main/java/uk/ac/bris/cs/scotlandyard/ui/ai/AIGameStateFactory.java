@@ -12,6 +12,9 @@ import java.util.*;
 // A factory to create game states such that the AIs can use it
 // We took this from our Cw-Model coursework (closed task) and modified it for the open task
 public class AIGameStateFactory {
+//	Mr X and the five detectives.
+	private static final int PIECES = 6;
+
     @SuppressWarnings("UnstableApiUsage")
 	private final static class MyGameState implements AIGameState {
         final private GameSetup setup;
@@ -23,6 +26,16 @@ public class AIGameStateFactory {
 		final private ImmutableSet<Piece> winner;
 		final private Move previousMove;
 
+//		Players indexed by getPieceIndex, null if the piece isn't playing.
+		final private Player[] players;
+
+//		Views built the first time they are asked for. They are immutable, so threads racing to
+//		build them can only store equal views, and they are cached without locking.
+		private ImmutableSet<Piece> pieces;
+		private List<Integer> detectiveLocations;
+		private Optional<Integer>[] detectiveLocationViews;
+		private Optional<TicketBoard>[] ticketBoards;
+
 		private MyGameState(final GameSetup setup,
 							final ImmutableSet<Piece> remaining,
 							final ImmutableList<LogEntry> log,
@@ -40,6 +53,12 @@ public class AIGameStateFactory {
 			this.detectives = detectives;
 			this.previousMove = previousMove;
 
+			this.players = new Player[PIECES];
+			this.players[MyGameState.getPieceIndex(mrX.piece())] = mrX;
+			for (Player detective : detectives) {
+				this.players[MyGameState.getPieceIndex(detective.piece())] = detective;
+			}
+
 			this.winner = MyGameState.getWinners(
 					this.detectives,
 					this.mrX,
@@ -57,6 +76,36 @@ public class AIGameStateFactory {
 
 		}
 
+		/**
+		 * Copies a state where it is the detectives' turn, moving Mr X to a different location.
+		 * The detectives' moves and the winner don't depend on where Mr X is during their turn,
+		 * as long as he isn't on a detective's location, so they are shared rather than generated
+		 * again.
+		 *
+		 * @param template State to copy
+		 * @param mrX Mr X at his new location, with the same tickets
+		 * @throws IllegalArgumentException if it is Mr X's turn, or Mr X is on a detective's location
+		 */
+		private MyGameState(final MyGameState template, final Player mrX) {
+			if (template.remaining.contains(Piece.MrX.MRX)) throw new IllegalArgumentException("Template must be on the detectives' turn");
+			if (template.getDetectiveLocations().contains(mrX.location())) throw new IllegalArgumentException("Mr X on a detective's location");
+
+			this.setup = template.setup;
+			this.remaining = template.remaining;
+			this.log = template.log;
+			this.mrX = mrX;
+			this.detectives = template.detectives;
+			this.previousMove = template.previousMove;
+			this.winner = template.winner;
+			this.moves = template.moves;
+
+			this.players = template.players.clone();
+			this.players[MyGameState.getPieceIndex(mrX.piece())] = mrX;
+
+			this.pieces = template.pieces;
+			this.detectiveLocations = template.detectiveLocations;
+		}
+
 
 		/**
 		 * Generates the current winners for the game state.
@@ -74,44 +123,41 @@ public class AIGameStateFactory {
                                                       List<LogEntry> log,
                                                       ImmutableSet<Piece> remaining){
 			List<Integer> detectiveLocations = MyGameState.getListOfDetectiveLocations(detectives);
+
+//			Mr X's wins are checked first, as the game does, so they take priority over a detective
+//			landing on him with the last move before them.
 			boolean detectivesHaveMoves = false;
+			for (Player detective : detectives) {
+				if (MyGameState.hasSingleMoves(setup, detectiveLocations, detective)) {
+					detectivesHaveMoves = true;
+					break;
+				}
+			}
+
+//			If detectives have no more moves on their turn, MrX wins.
+			if (!detectivesHaveMoves) {
+				return ImmutableSet.of(mrX.piece());
+			}
 
+//			If logbook full once the detectives have finished the last round, mrX wins.
+			if (remaining.contains(mrX.piece()) && log.size() >= setup.moves.size()) {
+				return ImmutableSet.of(mrX.piece());
+			}
+
+//			If a detective and MrX in same place, detective wins.
             for (Player detective : detectives) {
-//				If a detective and MrX in same place, detective wins.
                 if (detective.location() == mrX.location()) {
-//
                    return ImmutableSet.copyOf(detectives
                             .stream()
                             .map(Player::piece)
                             .toList());
                 }
-//				Checks if any detectives have possible moves remaining.
-                if (!detectivesHaveMoves) {
-					if (!MyGameState.makeSingleMoves(
-							setup,
-							detectiveLocations,
-							detective,
-							detective.location()
-					).isEmpty()) {
-						detectivesHaveMoves = true;
-					}
-                }
-            }
-
-//			If detectives have no more moves on their turn, MrX wins.
-            if (!detectivesHaveMoves) {
-				return ImmutableSet.of(mrX.piece());
             }
 
 //			Check for mrX's turn
             if (remaining.contains(mrX.piece())) {
-//				If logbook full, mrX wins
-                if ((log.size() >= setup.moves.size())) {
-					return ImmutableSet.of(mrX.piece());
-                }
-
 //				Check MrX can move if it is his turn. If he can't then detectives win
-                if (MyGameState.makeSingleMoves(setup, detectiveLocations, mrX, mrX.location()).isEmpty()) {
+                if (!MyGameState.hasSingleMoves(setup, detectiveLocations, mrX)) {
 					return ImmutableSet.copyOf(detectives
                             .stream()
                             .map(Player::piece)
@@ -185,16 +231,21 @@ public class AIGameStateFactory {
 		}
 
 		/**
-		 * Helper method
+		 * Helper method. Mr X is 0 and detectives are numbered from 1 in the order of
+		 * {@link Piece.Detective#values()}.
 		 *
-		 * @return Set of all players in game (detectives and mrX)
+		 * @param piece Piece to get index of
+		 * @return Index of the piece in the players array, or -1 if it isn't a known piece.
 		 */
-		@Nonnull
-		private ImmutableSet<Player> getPlayerSet() {
-			ImmutableSet.Builder<Player> builder = ImmutableSet.builder();
-			builder.addAll(this.detectives);
-			builder.add(this.mrX);
-			return builder.build();
+		private static int getPieceIndex(Piece piece) {
+			if (piece instanceof Piece.Detective detective) return detective.ordinal() + 1;
+			if (piece instanceof Piece.MrX) return 0;
+			return -1;
+		}
+
+		@SuppressWarnings("unchecked")
+		private static <T> Optional<T>[] newOptionalArray() {
+			return (Optional<T>[]) new Optional<?>[PIECES];
 		}
 
 		@Nonnull
@@ -206,55 +257,74 @@ public class AIGameStateFactory {
 		@Nonnull
 		@Override
 		public ImmutableSet<Piece> getPlayers() {
-
-			List<Piece> pieces = this.getPlayerSet()
-					.stream()
-					.map(Player::piece)
-					.toList();
-
-			return ImmutableSet.copyOf(pieces);
+			ImmutableSet<Piece> pieces = this.pieces;
+			if (pieces == null) {
+				ImmutableSet.Builder<Piece> builder = ImmutableSet.builderWithExpectedSize(this.detectives.size() + 1);
+				for (Player detective : this.detectives) {
+					builder.add(detective.piece());
+				}
+				builder.add(this.mrX.piece());
+				pieces = builder.build();
+				this.pieces = pieces;
+			}
+			return pieces;
 		}
 
 		/**
 		 * Gets corresponding player for the piece passed in.
 		 *
 		 * @param piece Piece to get player of
-		 * @return Optional. Has value if player exists and empty if no player exists from piece.
+		 * @return Player, or null if no player exists for the piece.
 		 */
-		@Nonnull
-		private Optional<Player> getPlayerFromPiece (Piece piece) {
-			Set<Player> players = this.getPlayerSet();
-			return players
-					.stream()
-					.filter(p -> p.piece().equals(piece))
-					.findAny();
+		private Player getPlayerFromPiece (Piece piece) {
+			int index = MyGameState.getPieceIndex(piece);
+			return index < 0 ? null : this.players[index];
 		}
 
 		@Nonnull
 		@Override
 		public Optional<Integer> getDetectiveLocation(Piece.Detective detective) {
-			Optional<Player> player = this.getPlayerFromPiece(detective);
-//			If detective exists, then maps the detective player to a location.
-			return player.map(Player::location);
+			Optional<Integer>[] views = this.detectiveLocationViews;
+			if (views == null) {
+				views = MyGameState.newOptionalArray();
+				this.detectiveLocationViews = views;
+			}
+
+			int index = MyGameState.getPieceIndex(detective);
+			Optional<Integer> location = views[index];
+			if (location == null) {
+//				If detective exists, then maps the detective player to a location.
+				location = Optional.ofNullable(this.players[index]).map(Player::location);
+				views[index] = location;
+			}
+			return location;
 		}
 
 		@Nonnull
 		@Override
 		public Optional<TicketBoard> getPlayerTickets(Piece piece) {
-			Optional<Player> player = getPlayerSet()
-					.stream()
-					.filter(p -> p.piece().equals(piece))
-					.findAny();
+			int index = MyGameState.getPieceIndex(piece);
+			if (index < 0) return Optional.empty();
 
-			// Creates TicketBoard implementation from player if player exists.
-			return player.map((p) -> new TicketBoard() {
-				private final ImmutableMap<ScotlandYard.Ticket, Integer> tickets = p.tickets();
+			Optional<TicketBoard>[] views = this.ticketBoards;
+			if (views == null) {
+				views = MyGameState.newOptionalArray();
+				this.ticketBoards = views;
+			}
 
-				public int getCount(@Nonnull ScotlandYard.Ticket ticket) {
-					return this.tickets.getOrDefault(ticket, 0);
-				}
-			});
+			Optional<TicketBoard> ticketBoard = views[index];
+			if (ticketBoard == null) {
+				// Creates TicketBoard implementation from player if player exists.
+				ticketBoard = Optional.ofNullable(this.players[index]).map((p) -> new TicketBoard() {
+					private final ImmutableMap<ScotlandYard.Ticket, Integer> tickets = p.tickets();
 
+					public int getCount(@Nonnull ScotlandYard.Ticket ticket) {
+						return this.tickets.getOrDefault(ticket, 0);
+					}
+				});
+				views[index] = ticketBoard;
+			}
+			return ticketBoard;
 		}
 
 		@Nonnull
@@ -288,7 +358,12 @@ public class AIGameStateFactory {
 		 * @return List of all the locations for the detectives.
 		 */
 		public List<Integer> getDetectiveLocations () {
-			return getListOfDetectiveLocations(detectives);
+			List<Integer> detectiveLocations = this.detectiveLocations;
+			if (detectiveLocations == null) {
+				detectiveLocations = getListOfDetectiveLocations(detectives);
+				this.detectiveLocations = detectiveLocations;
+			}
+			return detectiveLocations;
 		}
 
 		public int getMrXLocation () {
@@ -303,100 +378,102 @@ public class AIGameStateFactory {
 		 * @param detectiveLocations List of current detective players
 		 * @param player             Player to perform moves from
 		 * @param source             The starting location of the player
-		 * @return Set of all single moves from position for the player
+		 * @return List of all single moves from position for the player, without duplicates
 		 */
-		private static Set<Move.SingleMove> makeSingleMoves(
+		private static List<Move.SingleMove> makeSingleMoves(
 				GameSetup setup,
 				List<Integer> detectiveLocations,
 				Player player,
 				int source ) {
-			Set<Move.SingleMove> moves = new HashSet<>();
-			Map<ScotlandYard.Ticket, Integer> tickets = player.tickets();
-			boolean hasSecretTicket = tickets.get(ScotlandYard.Ticket.SECRET) > 0;
+//			Moves are cached for each combination of tickets, so only the detectives need checking.
+			Move.SingleMove[] templates = MoveTemplates.forGraph(setup.graph)
+					.getSingleMoves(player.piece(), source, MoveTemplates.getTicketMask(player.tickets()));
+			List<Move.SingleMove> moves = new ArrayList<>(templates.length);
 
-			for (int destination : setup.graph.adjacentNodes(source)) {
+			for (Move.SingleMove move : templates) {
 //				If detective not already occupying destination node.
-				if (!detectiveLocations.contains(destination)) {
-
-// 					Adds move if player has secret ticket.
-					if (hasSecretTicket) {
-						moves.add(new Move.SingleMove( 	player.piece(),
-														source,
-														ScotlandYard.Ticket.SECRET,
-														destination )
-						);
-					}
-
-					for (ScotlandYard.Transport t : Objects.requireNonNull(
-							setup.graph.edgeValueOrDefault(
-									source,
-									destination,
-									ImmutableSet.of()
-							)
-					)) {
-						boolean hasNonSecretTicket = tickets.get(t.requiredTicket()) > 0;
-
-//						Add move if player has correct non-secret ticket.
-						if (hasNonSecretTicket) {
-							moves.add(new Move.SingleMove(	player.piece(),
-															source,
-															t.requiredTicket(),
-															destination  )
-							);
-						}
-					}
-				}
+				if (!detectiveLocations.contains(move.destination)) moves.add(move);
 			}
 
 			return moves;
 		}
 
+		/**
+		 * Helper method to check whether a player can make any single move, without building the moves.
+		 *
+		 * @param setup              Setup for the game
+		 * @param detectiveLocations List of current detective players
+		 * @param player             Player to perform moves from
+		 * @return true if the player has a single move from their location.
+		 */
+		private static boolean hasSingleMoves(
+				GameSetup setup,
+				List<Integer> detectiveLocations,
+				Player player ) {
+			Move.SingleMove[] templates = MoveTemplates.forGraph(setup.graph)
+					.getSingleMoves(player.piece(), player.location(), MoveTemplates.getTicketMask(player.tickets()));
+
+			for (Move.SingleMove move : templates) {
+				if (!detectiveLocations.contains(move.destination)) return true;
+			}
+			return false;
+		}
+
 
 		/**
-		 * Finds all possible double moves for a player from current position
+		 * Finds all possible double moves for a player from current position.
+		 * Works on the ticket mask rather than building the player after each first move, since the
+		 * second moves only depend on which tickets are left.
 		 *
 		 * @param setup              The setup for the game
 		 * @param detectiveLocations List of current detective players
 		 * @param player             Player to check double moves for
 		 * @param source             The starting location of the player
-		 * @return Set of all double moves possible for player
+		 * @return List of all double moves possible for player, without duplicates
 		 */
-		private static Set<Move.DoubleMove> makeDoubleMoves(
+		private static List<Move.DoubleMove> makeDoubleMoves(
 				GameSetup setup,
 				List<Integer> detectiveLocations,
 				Player player,
 				int source ){
-			Set<Move.DoubleMove> doubleMoves = new HashSet<>();
+			List<Move.DoubleMove> doubleMoves = new ArrayList<>();
 
 //			Only runs if player has double tickets.
-			if (player.has(ScotlandYard.Ticket.DOUBLE)) {
-//				Gets all first moves
-				Set<Move.SingleMove> singleMoves = makeSingleMoves(setup, detectiveLocations, player, source);
-
-//				Checks all possible second moves from each first move.
-				for (Move.SingleMove singleMove : singleMoves){
-
-//					Version of player if they complete first single move
-					Player tempPlayer = player.use(singleMove.ticket);
-					tempPlayer = tempPlayer.at(singleMove.destination);
-
-//					Checks for all single moves from new temp position.
-					Set<Move.SingleMove> secondMove = makeSingleMoves(setup, detectiveLocations, tempPlayer, singleMove.destination);
-
-//					Attaches first move to second move to make complete double move.
-					doubleMoves.addAll(secondMove
-							   .stream()
-							   .map(
-									(move2) -> new Move.DoubleMove(
-											player.piece(),
-											singleMove.source(),
-											singleMove.ticket,
-											move2.source(),
-											move2.ticket,
-											move2.destination
-									)
-								 )
-							   .toList());
+			if (!player.has(ScotlandYard.Ticket.DOUBLE)) return doubleMoves;
+
+			MoveTemplates moveTemplates = MoveTemplates.forGraph(setup.graph);
+			Map<ScotlandYard.Ticket, Integer> tickets = player.tickets();
+			int ticketMask = MoveTemplates.getTicketMask(tickets);
+
+//			Tickets left for the second move after each first ticket. Using a ticket only changes the
+//			mask if it was the last of its kind, so first moves with the same ticket share a mask.
+			int[] secondTicketMasks = new int[ScotlandYard.Ticket.values().length];
+			for (ScotlandYard.Ticket ticket : ScotlandYard.Ticket.values()) {
+				if (ticket == ScotlandYard.Ticket.DOUBLE) continue;
+				secondTicketMasks[ticket.ordinal()] = tickets.getOrDefault(ticket, 0) > 1 ?
+						ticketMask :
+						ticketMask & ~MoveTemplates.getTicketBit(ticket);
+			}
+
+			for (Move.SingleMove firstMove : moveTemplates.getSingleMoves(player.piece(), source, ticketMask)) {
+				if (detectiveLocations.contains(firstMove.destination)) continue;
+
+//				Attaches first move to each second move from its destination to make complete double move.
+				for (Move.SingleMove secondMove : moveTemplates.getSingleMoves(
+						player.piece(),
+						firstMove.destination,
+						secondTicketMasks[firstMove.ticket.ordinal()]
+				)) {
+					if (detectiveLocations.contains(secondMove.destination)) continue;
+
+					doubleMoves.add(new Move.DoubleMove(
+							player.piece(),
+							source,
+							firstMove.ticket,
+							firstMove.destination,
+							secondMove.ticket,
+							secondMove.destination
+					));
 				}
 			}
 			return doubleMoves;
@@ -510,8 +587,10 @@ public class AIGameStateFactory {
 
 		/**
          * Switches from mrX's turn to detective turn.
+		 * Detectives unable to move stay in the set, since another detective moving away can free
+		 * their way later in the turn.
 		 *
-		 * @return Set of all detective able to move
+		 * @return Set of all detectives, or Mr X if none of them are able to move
          */
         private ImmutableSet<Piece> switchToDetectivesTurn (List<Player> updatedDetectives) {
 			final List<Integer> detectiveLocations = updatedDetectives
@@ -519,29 +598,20 @@ public class AIGameStateFactory {
 					.map(Player::location)
 					.toList();
 
-            ImmutableSet<Piece> pieces = ImmutableSet.copyOf(
+			if (this.detectives.stream().noneMatch(d -> MyGameState.hasSingleMoves(this.setup, detectiveLocations, d))) {
+				return ImmutableSet.of(Piece.MrX.MRX);
+			}
+
+            return ImmutableSet.copyOf(
                     this.detectives
                     .stream()
-                    .filter(d -> !MyGameState.makeSingleMoves(
-							this.setup,
-							detectiveLocations,
-							d,
-							d.location())
-							.isEmpty()
-					)
                     .map(Player::piece)
                     .toList());
-
-			if (pieces.isEmpty()) {
-				return ImmutableSet.of(Piece.MrX.MRX);
-			}
-
-			return pieces;
         }
 
 		/**
-         * Updates remaining detectives to new set of remaining detectives after move and
-		 * filters out detectives unable to move for any reason
+         * Updates remaining detectives to new set of remaining detectives after move.
+		 * The turn passes to Mr X once none of the remaining detectives are able to move.
 		 *
          * @param move Move used this turn
          * @param updatedDetectives List of new detectives after move carried out
@@ -552,30 +622,21 @@ public class AIGameStateFactory {
 					.map(Player::location)
 					.toList();
 
-            ImmutableSet<Piece> pieces = ImmutableSet.copyOf(
-                    this.getPlayerSet()
+            List<Player> remainingDetectives = this.detectives
                     .stream()
 //					Filters so only remaining players remain.
 					.filter(p -> this.remaining.contains(p.piece()))
 
 //					Filters so players who didn't move remain.
                     .filter((p) -> !(p.piece()).equals(move.commencedBy()))
+                    .toList();
 
-//					Filters so only players who have available moves this turn remain.
-                    .filter(d -> {
-						// Check if location after making a single move is empty, then filter it out if it is
-                        return !MyGameState.makeSingleMoves(
-                                this.setup,
-                                detectiveLocations,
-                                d,
-                                d.location()).isEmpty();
-                    })
-					.map(Player::piece)
-                    .toList());
-
-			if (pieces.isEmpty()) return ImmutableSet.of(Piece.MrX.MRX);
+//			Mr X's turn if none of the remaining detectives have available moves this turn.
+			if (remainingDetectives.stream().noneMatch(d -> MyGameState.hasSingleMoves(this.setup, detectiveLocations, d))) {
+				return ImmutableSet.of(Piece.MrX.MRX);
+			}
 
-			return pieces;
+			return ImmutableSet.copyOf(remainingDetectives.stream().map(Player::piece).toList());
         }
 
 		/**
@@ -646,7 +707,7 @@ public class AIGameStateFactory {
 			}
 
 			Piece piece = move.commencedBy();
-			Player player = getPlayerFromPiece(piece).orElseThrow();
+			Player player = Objects.requireNonNull(getPlayerFromPiece(piece));
 
 			List<ScotlandYard.Ticket> tickets = move.accept(new MoveVisitors.TicketVisitor());
 
@@ -687,6 +748,28 @@ public class AIGameStateFactory {
 		}
     }
 
+    /**
+     * Players and turn of a board, read once so that states for many possible locations of
+     * Mr X can be built from it.
+     */
+    private static class BoardSnapshot {
+        final private ImmutableSet<Piece> remaining;
+        final private ImmutableMap<ScotlandYard.Ticket, Integer> mrXTickets;
+        final private ImmutableList<Player> detectives;
+
+        private BoardSnapshot (Board board) {
+//          Pieces with moves, in the order their moves are first found.
+            Set<Piece> remaining = new LinkedHashSet<>();
+            for (Move move : board.getAvailableMoves()) {
+                remaining.add(move.commencedBy());
+            }
+            this.remaining = ImmutableSet.copyOf(remaining);
+
+            this.mrXTickets = BoardHelpers.getTicketsForPlayer(board, Piece.MrX.MRX);
+            this.detectives = BoardHelpers.getDetectives(board);
+        }
+    }
+
     /**
      * Build a game state for Mr X AI.
 	 *
@@ -715,8 +798,29 @@ public class AIGameStateFactory {
         );
     }
 
+    /**
+     * Build a game state for detective AI with Mr X at one of his possible locations.
+	 *
+     * @param board Current game state from game
+     * @param mrXLocation Location to place Mr X at
+     * @return Game state with Mr X at the location.
+     */
+    public AIGameState buildDetectiveGameState (Board board, int mrXLocation) {
+        BoardSnapshot snapshot = new BoardSnapshot(board);
+        return new MyGameState(
+                board.getSetup(),
+                snapshot.remaining,
+                board.getMrXTravelLog(),
+                new Player(Piece.MrX.MRX, snapshot.mrXTickets, mrXLocation),
+                snapshot.detectives,
+                null
+        );
+    }
+
     /**
      * Build all possible game states for detective AI.
+     * The board is read once, and the detectives' moves are only generated for the first state,
+     * then shared by the states for the other locations.
 	 *
      * @param board Current game state from game
      * @param possibleLocations List of possible locations that MrX could be in
@@ -724,33 +828,35 @@ public class AIGameStateFactory {
      */
     public List<Pair<AIGameState, Integer>> buildDetectiveGameStates (Board board, PossibleLocations possibleLocations) {
         List<Pair<AIGameState, Integer>> gameStates = new ArrayList<>(possibleLocations.getLocations().size());
-		final ImmutableList<Player> detectives = BoardHelpers.getDetectives(board);
-		List<Piece> remaining = new ArrayList<>(detectives.size());
-
-        //Adds a player who hasn't moved yet
-        for (Move move : board.getAvailableMoves()) {
-            if (!remaining.contains(move.commencedBy())) {
-                remaining.add(move.commencedBy());
-            }
-        }
+        BoardSnapshot snapshot = new BoardSnapshot(board);
+        MyGameState template = null;
 
         for (int possibleLocation : possibleLocations.getLocations()){
 
 			//Construct a new MrX per each possible location
             Player mrX = new Player(
                     Piece.MrX.MRX,
-                    BoardHelpers.getTicketsForPlayer(board, Piece.MrX.MRX),
+                    snapshot.mrXTickets,
                     possibleLocation
             );
 
-			AIGameState aiGameState = new MyGameState(
-					board.getSetup(),
-					ImmutableSet.copyOf(remaining),
-					board.getMrXTravelLog(),
-					mrX,
-					detectives,
-					null
-			);
+//			States with Mr X on a detective are already won, so they are always built in full.
+			MyGameState aiGameState;
+			boolean onDetective = snapshot.detectives.stream().anyMatch(d -> d.location() == possibleLocation);
+			if (template != null && !onDetective) {
+				aiGameState = new MyGameState(template, mrX);
+			}
+			else {
+				aiGameState = new MyGameState(
+						board.getSetup(),
+						snapshot.remaining,
+						board.getMrXTravelLog(),
+						mrX,
+						snapshot.detectives,
+						null
+				);
+				if (!onDetective && !snapshot.remaining.contains(Piece.MrX.MRX)) template = aiGameState;
+			}
 
             gameStates.add(new Pair<>(aiGameState, possibleLocation));
         }
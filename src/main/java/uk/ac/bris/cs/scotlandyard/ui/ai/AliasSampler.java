@@ -0,0 +1,75 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.util.Random;
+
+/**
+ * Samples indices in proportion to their weights in constant time, using Vose's alias method.
+ * Building the table takes time linear in the number of weights, so it is worth building when
+ * more than a few samples are taken from the same weights.
+ */
+public class AliasSampler {
+    final private double[] probabilities;
+    final private int[] aliases;
+
+    /**
+     * @param weights Non-negative weight of each index, which don't need to sum to one
+     * @throws IllegalArgumentException if there are no weights, a weight is negative or all the
+     * weights are zero
+     */
+    public AliasSampler (double[] weights) {
+        int size = weights.length;
+        double totalWeight = 0;
+        for (double weight : weights) {
+            if (!(weight >= 0)) throw new IllegalArgumentException("Weights must not be negative");
+            totalWeight += weight;
+        }
+        if (!(totalWeight > 0)) throw new IllegalArgumentException("Weights must not all be zero");
+
+        this.probabilities = new double[size];
+        this.aliases = new int[size];
+
+//      Work lists of the indices with less and more than the average weight, stored as stacks.
+        double[] scaled = new double[size];
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallSize = 0;
+        int largeSize = 0;
+        for (int i = 0; i < size; i++) {
+            scaled[i] = weights[i] * size / totalWeight;
+            if (scaled[i] < 1) small[smallSize++] = i;
+            else large[largeSize++] = i;
+        }
+
+//      Each small index fills the rest of its column with a large index.
+        while (smallSize > 0 && largeSize > 0) {
+            int less = small[--smallSize];
+            int more = large[--largeSize];
+            this.probabilities[less] = scaled[less];
+            this.aliases[less] = more;
+
+            scaled[more] = (scaled[more] + scaled[less]) - 1;
+            if (scaled[more] < 1) small[smallSize++] = more;
+            else large[largeSize++] = more;
+        }
+
+//      Anything left over is only off one due to rounding errors.
+        while (largeSize > 0) this.probabilities[large[--largeSize]] = 1;
+        while (smallSize > 0) this.probabilities[small[--smallSize]] = 1;
+    }
+
+    /**
+     * @return Number of indices that can be sampled.
+     */
+    public int size () {
+        return this.probabilities.length;
+    }
+
+    /**
+     * @param random Random number generator to sample with
+     * @return Index sampled in proportion to its weight.
+     */
+    public int sample (Random random) {
+        int column = random.nextInt(this.probabilities.length);
+        return random.nextDouble() < this.probabilities[column] ? column : this.aliases[column];
+    }
+}
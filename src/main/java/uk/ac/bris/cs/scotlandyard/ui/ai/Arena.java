@@ -0,0 +1,458 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import io.atlassian.fugue.Pair;
+import uk.ac.bris.cs.scotlandyard.model.*;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * Plays two AI configurations against each other to check whether a change improves play.
+ * Games are played in pairs from the same starting locations, with each configuration playing Mr X
+ * once, which cancels out how much easier some starting locations are for one side. Pairs are
+ * played concurrently until the maximum number of pairs or until a sequential probability ratio
+ * test (SPRT) decides whether the first configuration is stronger.
+ */
+public class Arena {
+    private static final double Z_95 = 1.96;
+
+    final private GameSimulator gameSimulator;
+    final private Contender first;
+    final private Contender second;
+    final private Sprt sprt;
+    final private Random seeds;
+
+    final private Results firstResults = new Results();
+    final private Results secondResults = new Results();
+
+//  Scores of the first configuration in each pair: 0, 0.5 or 1.
+    private long pairs = 0;
+    private double pairScores = 0;
+    private double pairScoreSquares = 0;
+    private Sprt.Decision decision = Sprt.Decision.CONTINUE;
+
+    /**
+     * AI configuration taking part in the arena.
+     */
+    public static class Contender {
+        final private String name;
+        final private LongFunction<MyAi> aiFactory;
+
+        /**
+         * @param name Name used in the report
+         * @param aiFactory Creates the AI for a game from a seed. A new AI is created for each game.
+         */
+        public Contender (String name, LongFunction<MyAi> aiFactory) {
+            this.name = name;
+            this.aiFactory = aiFactory;
+        }
+
+        /**
+         * Configuration searching a fixed number of iterations per move. Searching against the time
+         * limit isn't fair in the arena, since an AI's pondering runs during its opponent's search.
+         * @param iterations Iterations searched for each move
+         * @return Contender named after its iterations.
+         */
+        public static Contender withIterations (int iterations) {
+            return new Contender(iterations + " iterations", seed -> new MyAi(new IterationBudget(iterations, seed)));
+        }
+
+        /**
+         * Configuration searching a fixed number of iterations per move with the parameters of a profile.
+         * @param name Name used in the report
+         * @param iterations Iterations searched for each move
+         * @param profile Parameters of the search (see {@link SearchConfiguration})
+         * @return Contender using the profile.
+         */
+        public static Contender withProfile (String name, int iterations, Properties profile) {
+            return new Contender(name, seed -> new MyAi(new IterationBudget(iterations, seed), profile));
+        }
+
+        public String getName () {
+            return this.name;
+        }
+    }
+
+    /**
+     * Sequential probability ratio test of whether the first configuration is stronger, using the
+     * normal approximation of the scores of each pair of games.
+     */
+    public static class Sprt {
+        public enum Decision { CONTINUE, ACCEPT_H0, ACCEPT_H1 }
+
+        final private double score0;
+        final private double score1;
+        final private double lowerBound;
+        final private double upperBound;
+
+        /**
+         * @param elo0 Elo difference of the null hypothesis, usually 0
+         * @param elo1 Elo difference of the alternative hypothesis
+         * @param alpha Probability of accepting H1 when H0 is true
+         * @param beta Probability of accepting H0 when H1 is true
+         * @throws IllegalArgumentException if elo1 isn't greater than elo0, or alpha or beta isn't a probability
+         */
+        public Sprt (double elo0, double elo1, double alpha, double beta) {
+            if (elo1 <= elo0) throw new IllegalArgumentException("elo1 must be greater than elo0");
+            if (alpha <= 0 || alpha >= 1 || beta <= 0 || beta >= 1) throw new IllegalArgumentException("Invalid error probability");
+
+            this.score0 = Sprt.getExpectedScore(elo0);
+            this.score1 = Sprt.getExpectedScore(elo1);
+            this.lowerBound = Math.log(beta / (1 - alpha));
+            this.upperBound = Math.log((1 - beta) / alpha);
+        }
+
+        /**
+         * @param elo Elo difference
+         * @return Expected score of the stronger side.
+         */
+        static double getExpectedScore (double elo) {
+            return 1 / (1 + Math.pow(10, -elo / 400));
+        }
+
+        /**
+         * @param samples Number of scores
+         * @param sum Sum of the scores
+         * @param sumSquares Sum of the squares of the scores
+         * @return Log likelihood ratio of H1 to H0, or 0 while the scores have no variance.
+         */
+        public double getLogLikelihoodRatio (long samples, double sum, double sumSquares) {
+            if (samples == 0) return 0;
+
+            double mean = sum / samples;
+            double variance = sumSquares / samples - mean * mean;
+            if (variance <= 0) return 0;
+
+            return (this.score1 - this.score0) * (2 * sum - samples * (this.score0 + this.score1)) / (2 * variance);
+        }
+
+        /**
+         * @param logLikelihoodRatio Log likelihood ratio of the scores
+         * @return Hypothesis accepted, or CONTINUE if neither bound has been crossed.
+         */
+        public Decision getDecision (double logLikelihoodRatio) {
+            if (logLikelihoodRatio <= this.lowerBound) return Decision.ACCEPT_H0;
+            if (logLikelihoodRatio >= this.upperBound) return Decision.ACCEPT_H1;
+            return Decision.CONTINUE;
+        }
+
+        public double getLowerBound () {
+            return this.lowerBound;
+        }
+
+        public double getUpperBound () {
+            return this.upperBound;
+        }
+    }
+
+    /**
+     * Results of a single configuration. Guarded by the arena's lock.
+     */
+    private static class Results {
+        private long gamesAsMrX = 0;
+        private long winsAsMrX = 0;
+        private long gamesAsDetectives = 0;
+        private long winsAsDetectives = 0;
+        private long moves = 0;
+        private long iterations = 0;
+        private long latencyNanos = 0;
+    }
+
+    /**
+     * Measures the iterations and time taken by each move of an AI.
+     */
+    private class MeasuredAi implements Ai {
+        final private MyAi ai;
+        final private Results results;
+
+        private MeasuredAi (MyAi ai, Results results) {
+            this.ai = ai;
+            this.results = results;
+        }
+
+        @Nonnull @Override
+        public String name () {
+            return this.ai.name();
+        }
+
+        @Nonnull @Override
+        public Move pickMove (@Nonnull Board board, Pair<Long, TimeUnit> timeoutPair) {
+            long startTime = System.nanoTime();
+            Move move = this.ai.pickMove(board, timeoutPair);
+            long latency = System.nanoTime() - startTime;
+
+            synchronized (Arena.this) {
+                this.results.moves++;
+                this.results.iterations += this.ai.getLastIterations();
+                this.results.latencyNanos += latency;
+            }
+            return move;
+        }
+    }
+
+    /**
+     * @param gameSimulator Simulator used to play each game
+     * @param first Configuration being tested
+     * @param second Configuration it is compared against
+     * @param sprt Test deciding when to stop
+     * @param seed Seed used to generate the seed of each pair of games
+     */
+    public Arena (GameSimulator gameSimulator, Contender first, Contender second, Sprt sprt, long seed) {
+        this.gameSimulator = gameSimulator;
+        this.first = first;
+        this.second = second;
+        this.sprt = sprt;
+        this.seeds = new Random(seed);
+    }
+
+    /**
+     * Plays pairs of games until the maximum number of pairs or until the SPRT makes a decision.
+     * A pair which fails is reported and isn't counted.
+     * @param maxPairs Maximum number of pairs of games to play
+     * @param concurrentPairs Number of pairs played at once
+     * @throws InterruptedException if interrupted while waiting for the games to finish
+     */
+    public void run (long maxPairs, int concurrentPairs) throws InterruptedException {
+        AtomicLong pairsStarted = new AtomicLong(0);
+        ExecutorService gameExecutor = ConcurrentGameRunner.createGameExecutor(concurrentPairs);
+
+        try {
+            for (int i = 0; i < concurrentPairs; i++) {
+                gameExecutor.submit(() -> {
+                    while (this.getDecision() == Sprt.Decision.CONTINUE && pairsStarted.getAndIncrement() < maxPairs) {
+                        try {
+                            this.playPair(this.nextSeed());
+                        } catch (RuntimeException e) {
+                            System.err.println("Arena game failed: " + e);
+                        }
+                    }
+                });
+            }
+        } finally {
+            gameExecutor.shutdown();
+        }
+
+        gameExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Helper function to run.
+     */
+    private long nextSeed () {
+        synchronized (this.seeds) {
+            return this.seeds.nextLong();
+        }
+    }
+
+    /**
+     * Helper function to run. Plays a game with each configuration as Mr X from the same starting
+     * locations, then updates the SPRT.
+     * @param seed Seed of the pair
+     */
+    private void playPair (long seed) {
+        boolean firstWinsAsMrX = this.playGame(seed, this.first, this.firstResults, this.second, this.secondResults);
+        boolean secondWinsAsMrX = this.playGame(seed, this.second, this.secondResults, this.first, this.firstResults);
+        double score = ((firstWinsAsMrX ? 1 : 0) + (secondWinsAsMrX ? 0 : 1)) / 2.0;
+
+        synchronized (this) {
+            this.firstResults.gamesAsMrX++;
+            this.firstResults.gamesAsDetectives++;
+            this.secondResults.gamesAsMrX++;
+            this.secondResults.gamesAsDetectives++;
+            if (firstWinsAsMrX) this.firstResults.winsAsMrX++;
+            else this.secondResults.winsAsDetectives++;
+            if (secondWinsAsMrX) this.secondResults.winsAsMrX++;
+            else this.firstResults.winsAsDetectives++;
+
+            this.pairs++;
+            this.pairScores += score;
+            this.pairScoreSquares += score * score;
+            if (this.decision == Sprt.Decision.CONTINUE) {
+                this.decision = this.sprt.getDecision(this.getLogLikelihoodRatio());
+            }
+        }
+    }
+
+    /**
+     * Helper function to playPair.
+     * @return true if Mr X won.
+     */
+    private boolean playGame (long seed, Contender mrX, Results mrXResults, Contender detectives, Results detectiveResults) {
+        Random random = new Random(seed);
+        MyAi mrXAi = mrX.aiFactory.apply(random.nextLong());
+        MyAi detectiveAi = detectives.aiFactory.apply(random.nextLong());
+        mrXAi.onStart();
+        detectiveAi.onStart();
+
+        try {
+            AIGameState finalState = this.gameSimulator.runGame(
+                    seed,
+                    new MeasuredAi(mrXAi, mrXResults),
+                    new MeasuredAi(detectiveAi, detectiveResults)
+            );
+            return finalState.getWinner().stream().anyMatch(Piece::isMrX);
+        } finally {
+            mrXAi.onTerminate();
+            detectiveAi.onTerminate();
+        }
+    }
+
+    /**
+     * @return Log likelihood ratio that the first configuration is stronger.
+     */
+    public synchronized double getLogLikelihoodRatio () {
+        return this.sprt.getLogLikelihoodRatio(this.pairs, this.pairScores, this.pairScoreSquares);
+    }
+
+    public synchronized Sprt.Decision getDecision () {
+        return this.decision;
+    }
+
+    /**
+     * @return Mean score of the first configuration over the pairs played, 0.5 if none have been played.
+     */
+    public synchronized double getScore () {
+        return this.pairs == 0 ? 0.5 : this.pairScores / this.pairs;
+    }
+
+    public synchronized long getPairs () {
+        return this.pairs;
+    }
+
+    /**
+     * @return true if the SPRT accepted that the first configuration is stronger, or if the lower
+     * bound of the 95% interval of its score is above half.
+     */
+    public synchronized boolean isFirstStronger () {
+//      The games of a pair share their starting locations so aren't independent, so pairs are
+//      counted as the samples, as they are by the SPRT.
+        return Arena.isStronger(this.decision, this.pairScores, this.pairs);
+    }
+
+    /**
+     * Helper function to isFirstStronger.
+     * @param decision Decision of the SPRT
+     * @param pairScores Sum of the first configuration's score over the pairs
+     * @param pairs Pairs of games played
+     * @return true if the decision or the scores show the first configuration is stronger.
+     */
+    static boolean isStronger (Sprt.Decision decision, double pairScores, long pairs) {
+        if (decision == Sprt.Decision.ACCEPT_H1) return true;
+        if (decision == Sprt.Decision.ACCEPT_H0) return false;
+        return Arena.getWilsonInterval(pairScores, pairs, Z_95).left() > 0.5;
+    }
+
+    /**
+     * Wilson score interval of a proportion, which unlike the normal approximation stays within
+     * [0, 1] for small numbers of games.
+     * @param successes Number of successes, or sum of scores between 0 and 1
+     * @param trials Number of trials
+     * @param z Quantile of the normal distribution for the confidence level
+     * @return Lower and upper bound of the interval.
+     */
+    static Pair<Double, Double> getWilsonInterval (double successes, long trials, double z) {
+        if (trials == 0) return new Pair<>(0.0, 1.0);
+
+        double proportion = successes / trials;
+        double zSquared = z * z;
+        double denominator = 1 + zSquared / trials;
+        double centre = (proportion + zSquared / (2 * trials)) / denominator;
+        double margin = z * Math.sqrt(proportion * (1 - proportion) / trials + zSquared / (4.0 * trials * trials)) / denominator;
+        return new Pair<>(Math.max(0, centre - margin), Math.min(1, centre + margin));
+    }
+
+    /**
+     * Helper function to getReport.
+     */
+    private static String formatWins (long wins, long games) {
+        Pair<Double, Double> interval = Arena.getWilsonInterval(wins, games, Z_95);
+        return String.format("%d/%d (%.1f%%, 95%% CI %.1f-%.1f%%)",
+                wins,
+                games,
+                100.0 * wins / Math.max(1, games),
+                100 * interval.left(),
+                100 * interval.right());
+    }
+
+    /**
+     * Helper function to getReport.
+     */
+    private static String formatResults (Contender contender, Results results) {
+        return String.format("%s: Mr X wins %s, detective wins %s, score %s, %.0f iterations/move, %.1f ms/move",
+                contender.getName(),
+                Arena.formatWins(results.winsAsMrX, results.gamesAsMrX),
+                Arena.formatWins(results.winsAsDetectives, results.gamesAsDetectives),
+                Arena.formatWins(
+                        results.winsAsMrX + results.winsAsDetectives,
+                        results.gamesAsMrX + results.gamesAsDetectives
+                ),
+                (double) results.iterations / Math.max(1, results.moves),
+                results.latencyNanos / 1e6 / Math.max(1, results.moves));
+    }
+
+    /**
+     * @return Results of both configurations and the state of the SPRT, one per line.
+     */
+    public synchronized String getReport () {
+        return Arena.formatResults(this.first, this.firstResults) + "\n" +
+                Arena.formatResults(this.second, this.secondResults) + "\n" +
+                String.format("SPRT after %d pairs: LLR %.2f (bounds %.2f, %.2f), %s",
+                        this.pairs,
+                        this.getLogLikelihoodRatio(),
+                        this.sprt.getLowerBound(),
+                        this.sprt.getUpperBound(),
+                        switch (this.decision) {
+                            case CONTINUE -> "undecided";
+                            case ACCEPT_H0 -> this.first.getName() + " isn't stronger";
+                            case ACCEPT_H1 -> this.first.getName() + " is stronger";
+                        });
+    }
+
+    /**
+     * Compares two iteration budgets.
+     * @param args Iterations of the configuration being tested (default 2000), iterations of the
+     *             configuration it is compared against (default 500) and maximum pairs of games
+     *             (default 1000).
+     */
+    public static void main (String[] args) throws InterruptedException {
+        try {
+            int firstIterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+            int secondIterations = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+            long maxPairs = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+
+            GameSimulator gameSimulator = GameSimulator.fromSystemProperties(
+                    new GameSetup(
+                            ScotlandYard.standardGraph(),
+                            ScotlandYard.STANDARD24MOVES
+                    ),
+                    new AIGameStateFactory()
+            );
+
+            Arena arena = new Arena(
+                    gameSimulator,
+                    Contender.withIterations(firstIterations),
+                    Contender.withIterations(secondIterations),
+                    new Sprt(0, 50, 0.05, 0.05),
+                    Long.getLong(GameSimulator.SEED_PROPERTY, System.nanoTime())
+            );
+            arena.run(maxPairs, Integer.getInteger(
+                    ConcurrentGameRunner.GAMES_PROPERTY,
+                    Runtime.getRuntime().availableProcessors()
+            ));
+
+            System.out.println(arena.getReport());
+        } catch (NumberFormatException e) {
+            System.err.println("Arguments must be numbers");
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println("Couldn't read the game graph");
+            System.exit(1);
+        }
+    }
+}
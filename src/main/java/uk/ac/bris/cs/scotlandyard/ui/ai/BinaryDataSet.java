@@ -0,0 +1,146 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import uk.ac.bris.cs.scotlandyard.model.Move;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Fixed width binary format for data sets created by {@link GenerateDataSet}.
+ * The file starts with a {@value #HEADER_SIZE} byte header (magic number, version and record size),
+ * followed by records of {@value #RECORD_SIZE} unsigned bytes. Each record has the same fields, in the
+ * same order, as a row of the text format, so {@link #MRX_LOCATION} is first and
+ * {@link #NEW_MRX_LOCATION} last.
+ */
+public class BinaryDataSet {
+    public static final int MAGIC = 0x53594453; // "SYDS"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 28;
+
+    public static final int MRX_LOCATION = 0;
+    public static final int NEW_MRX_LOCATION = RECORD_SIZE - 1;
+
+    /**
+     * Writes the header for a new data set.
+     * @param output Stream at the start of the file
+     * @throws IOException if the header can't be written
+     */
+    public static void writeHeader (OutputStream output) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(0);
+        output.write(header.array());
+    }
+
+    /**
+     * Writes the record of Mr X's move.
+     * @param output Stream to write to
+     * @param aiGameState Game state from before move is carried out.
+     * @param move Mr X's move
+     * @throws IOException if the record can't be written
+     * @throws IllegalArgumentException if a field doesn't fit in an unsigned byte
+     */
+    public static void writeRecord (OutputStream output, AIGameState aiGameState, Move move) throws IOException {
+        List<Integer> fields = aiGameState.getGameStateList();
+        if (fields.size() != NEW_MRX_LOCATION) throw new IllegalArgumentException("Game state must have 5 detectives");
+
+        byte[] record = new byte[RECORD_SIZE];
+        for (int i = 0; i < NEW_MRX_LOCATION; i++) {
+            record[i] = BinaryDataSet.toUnsignedByte(fields.get(i));
+        }
+        record[NEW_MRX_LOCATION] = BinaryDataSet.toUnsignedByte(move.accept(new MoveVisitors.DestinationVisitor()));
+        output.write(record);
+    }
+
+    /**
+     * Removes a partly written record from the end of a data set, left by a crash part way through
+     * writing, so that records appended after it are aligned.
+     * @param file Existing binary data set with a complete header
+     * @return Number of bytes removed.
+     * @throws IOException if the file can't be truncated
+     */
+    public static long truncatePartialRecord (File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size <= HEADER_SIZE) return 0;
+
+            long partial = (size - HEADER_SIZE) % RECORD_SIZE;
+            if (partial != 0) channel.truncate(size - partial);
+            return partial;
+        }
+    }
+
+    /**
+     * Helper function to writeRecord, also used by {@link GameRecords}.
+     * @throws IllegalArgumentException if the value doesn't fit in an unsigned byte
+     */
+    static byte toUnsignedByte (int value) {
+        if (value < 0 || value > 0xFF) throw new IllegalArgumentException("Field out of range: " + value);
+        return (byte) value;
+    }
+
+    /**
+     * Reads a binary data set by mapping it into memory, so records are read without any parsing.
+     * A partly written record at the end of the file is ignored.
+     */
+    public static class Reader implements Closeable {
+        final private FileChannel channel;
+        final private MappedByteBuffer buffer;
+        final private int records;
+
+        /**
+         * @param file Binary data set
+         * @throws IOException if the file can't be read, has an incorrect header, or is too large to map
+         */
+        public Reader (File file) throws IOException {
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            try {
+                long size = this.channel.size();
+                if (size < HEADER_SIZE) throw new IOException("File too small for header");
+                if (size > Integer.MAX_VALUE) throw new IOException("File too large to map");
+
+                this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                if (this.buffer.getInt(0) != MAGIC) throw new IOException("File is not a binary data set");
+                if (this.buffer.getInt(4) != VERSION) throw new IOException("Unsupported data set version");
+                if (this.buffer.getInt(8) != RECORD_SIZE) throw new IOException("Unexpected record size");
+
+                this.records = (int) ((size - HEADER_SIZE) / RECORD_SIZE);
+            } catch (IOException e) {
+                this.channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * @return Number of complete records in the file.
+         */
+        public int size () {
+            return this.records;
+        }
+
+        /**
+         * @param record Index of record
+         * @param field Index of field in record
+         * @return Value of the field.
+         * @throws IndexOutOfBoundsException if the record or field doesn't exist
+         */
+        public int get (int record, int field) {
+            if (record < 0 || record >= this.records) throw new IndexOutOfBoundsException("Record " + record);
+            if (field < 0 || field >= RECORD_SIZE) throw new IndexOutOfBoundsException("Field " + field);
+
+            return Byte.toUnsignedInt(this.buffer.get(HEADER_SIZE + record * RECORD_SIZE + field));
+        }
+
+        @Override
+        public void close () throws IOException {
+            this.channel.close();
+        }
+    }
+}
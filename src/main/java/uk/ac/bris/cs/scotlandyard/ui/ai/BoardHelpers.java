@@ -19,29 +19,24 @@ public interface BoardHelpers {
 
     @Nonnull
     static ImmutableList<Player> getDetectives (Board board){
+        ImmutableList.Builder<Player> detectives = ImmutableList.builder();
 
-        List<Player> detectives = new LinkedList<>(board
-                .getPlayers()
-                .stream()
-                .filter(Piece::isDetective)
-                .map(piece -> {
-                            Optional<Integer> locationOptional = board.getDetectiveLocation((Piece.Detective) piece);
-                            if (locationOptional.isEmpty())
-                                throw new IllegalStateException("Detective location not available.");
+        for (Piece piece : board.getPlayers()) {
+            if (!piece.isDetective()) continue;
+
+            //  Piece must be cast to a Detective. Not an issue since mrx filtered out above.
+            Optional<Integer> locationOptional = board.getDetectiveLocation((Piece.Detective) piece);
+            if (locationOptional.isEmpty())
+                throw new IllegalStateException("Detective location not available.");
 
-                            return new Player(
-                                    piece,
-                                    // Generates tickets for piece.
-                                    BoardHelpers.getTicketsForPlayer(board, piece),
-                                    //  Piece must be cast to a Detective. Not an issue since mrx filtered out earlier
-                                    // (For type safety). .get() fine as piece always is a detective.
-                                    locationOptional.get()
-                            );
-                        }
-                )
-                .toList()
-        );
-        return ImmutableList.copyOf(detectives);
+            detectives.add(new Player(
+                    piece,
+                    // Generates tickets for piece.
+                    BoardHelpers.getTicketsForPlayer(board, piece),
+                    locationOptional.get()
+            ));
+        }
+        return detectives.build();
     }
 
 
@@ -78,14 +73,15 @@ public interface BoardHelpers {
         if (ticketsOptional.isEmpty()) throw new IllegalArgumentException("Player does not exist.");
         Board.TicketBoard tickets = ticketsOptional.get();
 
-//      Generates map of ticket values from current TicketBoard state.
-        Map<ScotlandYard.Ticket, Integer> ticketMap = new HashMap<>();
+//      Generates map of ticket values from current TicketBoard state, in the order of the tickets.
+        ImmutableMap.Builder<ScotlandYard.Ticket, Integer> ticketMap =
+                ImmutableMap.builderWithExpectedSize(ScotlandYard.Ticket.values().length);
 
 //      Go over through all ticket types
         for (ScotlandYard.Ticket ticketType : ScotlandYard.Ticket.values()) {
             ticketMap.put(ticketType, tickets.getCount(ticketType));
         }
 
-        return ImmutableMap.copyOf(ticketMap);
+        return ticketMap.build();
     }
 }
@@ -0,0 +1,102 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays many independent simulated games at once.
+ * Games are run on virtual threads when the JVM supports them (Java 21, see the java21 build
+ * profile), otherwise on a bounded pool of platform threads. Either way the game threads mostly
+ * wait, since the searches themselves run on the shared {@link SearchExecutor} pool.
+ * The number of games played at once can be set with the {@value #GAMES_PROPERTY} system property.
+ */
+public class ConcurrentGameRunner {
+    public static final String GAMES_PROPERTY = "scotlandyard.simulator.games";
+    static final String VIRTUAL_EXECUTOR_METHOD = "newVirtualThreadPerTaskExecutor";
+
+    final private GameSimulator gameSimulator;
+    final private int concurrentGames;
+
+    /**
+     * @param gameSimulator Simulator used to play each game
+     * @param concurrentGames Number of games played at once
+     * @throws IllegalArgumentException if concurrentGames is less than 1
+     */
+    public ConcurrentGameRunner (GameSimulator gameSimulator, int concurrentGames) {
+        if (concurrentGames < 1) throw new IllegalArgumentException("At least one game must be run at once");
+
+        this.gameSimulator = gameSimulator;
+        this.concurrentGames = concurrentGames;
+    }
+
+    /**
+     * Uses the number of games set by the {@value #GAMES_PROPERTY} property, or one game per
+     * available processor.
+     * @param gameSimulator Simulator used to play each game
+     */
+    public ConcurrentGameRunner (GameSimulator gameSimulator) {
+        this(gameSimulator, Integer.getInteger(GAMES_PROPERTY, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Plays games until the number of games have been played. A game which fails is reported and
+     * doesn't stop the other games.
+     * @param games Number of games to play, or {@link Long#MAX_VALUE} to play forever
+     * @throws InterruptedException if interrupted while waiting for the games to finish
+     */
+    public void runGames (long games) throws InterruptedException {
+        AtomicLong gamesStarted = new AtomicLong(0);
+        ExecutorService gameExecutor = ConcurrentGameRunner.createGameExecutor(this.concurrentGames);
+
+        try {
+            for (int i = 0; i < this.concurrentGames; i++) {
+                gameExecutor.submit(() -> {
+                    while (gamesStarted.getAndIncrement() < games) {
+                        try {
+                            this.gameSimulator.runGame();
+                        } catch (RuntimeException e) {
+                            System.err.println("Simulated game failed: " + e);
+                        }
+                    }
+                });
+            }
+        } finally {
+            gameExecutor.shutdown();
+        }
+
+        gameExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Helper function to runGames. Creates a virtual thread per game if the JVM supports them.
+     * Looked up by reflection so that the project still builds and runs on Java 17.
+     * @param concurrentGames Number of games played at once
+     * @return Executor to run the games on.
+     */
+    static ExecutorService createGameExecutor (int concurrentGames) {
+        return ConcurrentGameRunner.createGameExecutor(concurrentGames, VIRTUAL_EXECUTOR_METHOD);
+    }
+
+    /**
+     * @param concurrentGames Number of games played at once
+     * @param executorMethod Name of the {@link Executors} method creating a virtual thread per task
+     * @return Executor created by the method, or a pool of platform threads if there is no such method.
+     */
+    static ExecutorService createGameExecutor (int concurrentGames, String executorMethod) {
+        try {
+            return (ExecutorService) Executors.class.getMethod(executorMethod).invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadCount = new AtomicInteger(0);
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "simulated-game-" + threadCount.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newFixedThreadPool(concurrentGames, threadFactory);
+        }
+    }
+}
@@ -9,30 +9,67 @@ import javax.annotation.Nonnull;
 import java.io.IOException;
 import java.util.List;
 import java.util.Random;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 public class DetectiveAI implements PlayerAI {
     private static final long BUFFER = 200;
+//  Locations rejected before falling back to sampling on the possible locations' probabilities alone.
+    private static final int MAX_SAMPLES = 10_000;
     private PossibleLocations possibleLocations;
     final private AIGameStateFactory aiGameStateFactory;
     final private PossibleLocationsFactory possibleLocationsFactory;
     final private DistancesSingleton distances;
-    private Heuristics.LocationCategorization.MinDistanceData minDistanceData;
-    private final ExecutorService executorService;
+//  Hit probability of each min-distance category, indexed by ordinal. The data doesn't change
+//  during a game, so it is only read once.
+    private double[] hitProbabilities;
+    private double maxHitProbability;
+    private final SearchExecutor searchExecutor;
+    private final SearchConfiguration configuration;
+    private final TimeManager timeManager;
+    private final Ponderer ponderer;
+    private final Random random;
+    private long lastIterations = 0;
+//  Null when searching against the time limit.
+    private final IterationBudget iterationBudget;
 
     /**
      * @param distances Table of precalculated distances for graph.
+     * @param configuration Heuristics used by the search.
      *  */
-    public DetectiveAI (ExecutorService executorService, DistancesSingleton distances) {
+    public DetectiveAI (SearchExecutor searchExecutor,
+                        DistancesSingleton distances,
+                        SearchConfiguration configuration) {
+        this(searchExecutor, distances, configuration, null);
+    }
+
+    /**
+     * @param distances Table of precalculated distances for graph.
+     * @param configuration Heuristics used by the search.
+     * @param iterationBudget Iterations to search for each move instead of the time limit, or null
+     *                        to use the time limit.
+     *  */
+    public DetectiveAI (SearchExecutor searchExecutor,
+                        DistancesSingleton distances,
+                        SearchConfiguration configuration,
+                        IterationBudget iterationBudget) {
+        this.iterationBudget = iterationBudget;
+        this.random = iterationBudget == null ? new Random() : iterationBudget.getRandom();
         this.distances = distances;
+        this.configuration = configuration;
+        this.timeManager = new TimeManager(BUFFER);
+        this.ponderer = new Ponderer(searchExecutor);
         this.aiGameStateFactory = new AIGameStateFactory();
         this.possibleLocationsFactory = new PossibleLocationsFactory();
-        this.executorService = executorService;
+        this.searchExecutor = searchExecutor;
 
         try {
-            this.minDistanceData = Heuristics.LocationCategorization.MinDistanceData.buildFromResources();
+            Heuristics.LocationCategorization.MinDistanceData minDistanceData =
+                    Heuristics.LocationCategorization.MinDistanceData.buildFromResources();
+            this.hitProbabilities = new double[MinDistance.values().length];
+            for (MinDistance category : MinDistance.values()) {
+                this.hitProbabilities[category.ordinal()] = minDistanceData.getHitProbability(category);
+                this.maxHitProbability = Math.max(this.maxHitProbability, this.hitProbabilities[category.ordinal()]);
+            }
         } catch (IOException e) {
             System.err.println("Cannot read min-distance-data.txt from resources.");
             System.exit(1);
@@ -41,52 +78,45 @@ public class DetectiveAI implements PlayerAI {
     }
 
     /**
-     * Filter out winning game states
-     * @param gameStates gamestates to be inspected as winning game states
+     * Helper function to determinizeGameState.
+     * @param possibleLocation Possible location of Mr X
+     * @param detectiveLocations Detective locations used to find distances to Mr X.
+     * @return Probability that Mr X is at the location, given its distance to the nearest detective.
      * */
-    private List<Pair<AIGameState, Integer>> removeWinningGameStates(List<Pair<AIGameState, Integer>> gameStates){
-        return gameStates
-                .stream()
-                .filter(s ->
-                        s.left()
-                        .getWinner()
-                        .isEmpty()
-                )
-                .toList();
+    private double getHitProbability(int possibleLocation, List<Integer> detectiveLocations){
+//      Not using stream chain due to worse performance.
+        int minDistance = Integer.MAX_VALUE;
+        for (int detectiveLocation : detectiveLocations) {
+            minDistance = Math.min(minDistance, this.distances.get(detectiveLocation, possibleLocation));
+        }
+        return this.hitProbabilities[MinDistance.getCategoryFromDistance(minDistance).ordinal()];
     }
 
     /**
-     * Given an already filtered list of non-winning game states, use the distances to possible Mr X and detectives to
-     * generate a weighting.
-     * @param gameStates Pairs of game states and their corresponding possible location.
-     * @param detectiveLocations Detective locations used to find distances to Mr X.
-     * @return list of pairs of AIGameState and the Double representing their weightings.
-     * */
-    private List<Pair<AIGameState, Double>> createWeightedGameStates(List<Pair<AIGameState, Integer>> gameStates,
-                                                                     List<Integer> detectiveLocations){
+     * Chooses a game state with a possible location of Mr X, weighted by how likely the detectives
+     * are to be at that distance from Mr X and how likely Mr X is to be at that location.
+     * Locations are sampled from the possible locations in constant time, and accepted in proportion
+     * to their hit probability, so only the game state of the chosen location is built.
+     * @param board Current game board
+     * @return Game state with Mr X placed at one of his possible locations.
+     */
+    private AIGameState determinizeGameState(Board board) {
+        List<Integer> detectiveLocations = BoardHelpers.getDetectiveLocations(board);
+
+        for (int attempt = 0; attempt < MAX_SAMPLES; attempt++) {
+            int possibleLocation = this.possibleLocations.sample(this.random);
+            if (this.random.nextDouble() * this.maxHitProbability >= this.getHitProbability(possibleLocation, detectiveLocations)) {
+                continue;
+            }
+
+//          Already winning game states are not possible.
+            AIGameState gameState = this.aiGameStateFactory.buildDetectiveGameState(board, possibleLocation);
+            if (gameState.getWinner().isEmpty()) return gameState;
+        }
 
-        return gameStates
-                .stream()
-                //Generate a Pair<AIGameState, Double>
-                .map(p -> {
-                    return new Pair<>(
-                            p.left(),
-
-                            this.minDistanceData.getHitProbability(
-                                    //Feed in the detective locations and choose the minimum distance
-
-                                    //This is type MinDistance
-                                    MinDistance.getCategoryFromDistance(detectiveLocations
-                                        .stream()
-                                            //extract the distances between the detective location and the
-                                            //possible location of Mr X
-                                        .mapToInt(l -> distances.get(l, p.right()))
-                                        .min()
-                                        .orElseThrow())
-                        )
-                    );
-                })
-                .toList();
+//      Only reached if the hit probabilities are zero at every possible location, or if every
+//      location accepted was already won.
+        return this.aiGameStateFactory.buildDetectiveGameState(board, this.possibleLocations.sample(this.random));
     }
 
     @Override @Nonnull
@@ -96,38 +126,46 @@ public class DetectiveAI implements PlayerAI {
         }
         this.possibleLocations = this.possibleLocations.updateLocations(board);
 
-//      Gets all possible game states for turn.
-        List<Pair<AIGameState, Integer>> gameStates = aiGameStateFactory.buildDetectiveGameStates(board, this.possibleLocations);
-
-        List<Integer> detectiveLocations = gameStates.get(0).left().getDetectiveLocations();
-
-//      Remove any already winning game states since they are not possible.
-        gameStates = removeWinningGameStates(gameStates);
-
-//      Pairs of game states and their weightings for random selection.
-        List<Pair<AIGameState, Double>> weightedGameStates = createWeightedGameStates(gameStates, detectiveLocations);
-
-        double totalWeight = weightedGameStates
-                .stream()
-                .map(Pair::right)
-                .mapToDouble(Double::doubleValue)
-                .sum();
+//      Continues from the tree searched while the other detectives were moving, keeping the same
+//      location of Mr X, if it is still possible.
+        Pair<Node, AIGameState> promoted = this.ponderer
+                .promote(board, this.possibleLocations)
+                .orElseGet(() -> {
+                    AIGameState newGameState = this.determinizeGameState(board);
+                    return new Pair<>(
+                            PlayerAI.buildTree(newGameState, this.possibleLocations, this.configuration),
+                            newGameState
+                    );
+                });
+        Node mctsTree = promoted.left();
+        AIGameState gameState = promoted.right();
+
+        double previousPlays = mctsTree.getTotalPlays();
+        Move bestMove;
+        if (this.iterationBudget == null) {
+            bestMove = PlayerAI.runMCTS(
+                    mctsTree,
+                    this.timeManager.getTimeForMove(gameState, possibleLocations, timeoutPair),
+                    this.searchExecutor
+            );
+        } else {
+            bestMove = PlayerAI.runMCTS(mctsTree, this.iterationBudget);
+        }
 
-//      Generates a random double from 0 to totalWeight exclusive
-        double randomDouble = new Random().nextDouble(totalWeight);
+        this.lastIterations = (long) (mctsTree.getTotalPlays() - previousPlays);
 
-        AIGameState gameState = weightedGameStates.get(0).left();
-        double runningTotal = 0.0;
-        int i = 0;
+//      Not pondered with an iteration budget, since the result would depend on the timing of the game.
+        if (this.iterationBudget == null) this.ponderer.start(mctsTree, bestMove, gameState);
+        return bestMove;
+    }
 
-        // chooses a game state based on the weights of the categorization
-        while (runningTotal < randomDouble){
-            //Extract the game state from the Pair data type
-            gameState = weightedGameStates.get(i).left();
-            runningTotal += weightedGameStates.get(i).right();
-            i++;
-        }
+    @Override
+    public long getLastIterations () {
+        return this.lastIterations;
+    }
 
-        return PlayerAI.runMCTSForGameState(gameState, possibleLocations, timeoutPair, BUFFER, this.executorService);
+    @Override
+    public void stopPondering () {
+        this.ponderer.stop();
     }
 }
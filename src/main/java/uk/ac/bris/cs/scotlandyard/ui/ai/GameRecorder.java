@@ -0,0 +1,109 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import uk.ac.bris.cs.scotlandyard.model.Move;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records every move of simulated games in the {@link GameRecords} format, so that they can be
+ * replayed and analysed later (see {@link ReplayStatistics}).
+ * The moves of each game are kept until it is won and then appended as one record, so concurrent
+ * games never interleave and games which fail part way through aren't written.
+ */
+public class GameRecorder implements GameSimulator.GameObserver, Closeable {
+    private final FileOutputStream fileOutput;
+    private final DataOutputStream output;
+
+    /**
+     * Moves of a single game, written when the game is won.
+     */
+    private class GameMoves implements GameSimulator.GameObserver {
+        private final List<Move> moves = new ArrayList<>();
+        private long seed;
+        private AIGameState initialState;
+
+        @Override
+        public void onGameStart (long seed) {
+            this.seed = seed;
+        }
+
+        @Override
+        public void onGameTurn (AIGameState aiGameState, Move move) {
+            if (this.initialState == null) this.initialState = aiGameState;
+            this.moves.add(move);
+        }
+
+        @Override
+        public void onGameWin (AIGameState aiGameState) {
+            if (this.initialState == null) this.initialState = aiGameState;
+            GameRecorder.this.writeGame(this.seed, this.initialState, this.moves);
+        }
+    }
+
+    /**
+     * @param filename File to append games to
+     * @throws IOException can't open the file, or an existing file is in a different format or can't
+     * be truncated to its last complete game
+     */
+    public GameRecorder (String filename) throws IOException {
+        File file = new File(filename);
+        boolean newFile = !file.exists() || file.length() == 0;
+
+//      Checks the header of an existing file before appending games to it, and removes any game left
+//      partly written, which would otherwise be read as the start of the next game appended.
+        if (!newFile) {
+            new GameRecords.Reader(file, null, null).close();
+            GameRecords.truncatePartialGame(file);
+        }
+
+        this.fileOutput = new FileOutputStream(file, true);
+        this.output = new DataOutputStream(new BufferedOutputStream(this.fileOutput, 1 << 16));
+
+        if (newFile) {
+            GameRecords.writeHeader(this.output);
+            this.output.flush();
+        }
+
+//      Ensures that file is closed when the program is shut down.
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                this.close();
+            } catch (IOException e) {
+                System.err.println("Couldn't close " + filename);
+            }
+        }));
+    }
+
+    /**
+     * Helper function to GameMoves. Appends the game and flushes it to the file.
+     */
+    private synchronized void writeGame (long seed, AIGameState initialState, List<Move> moves) {
+        try {
+            GameRecords.writeGame(this.output, seed, initialState, moves);
+            this.output.flush();
+        } catch (IOException e) {
+            System.err.println("Couldn't add to file");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return Collector for the moves of a new game.
+     */
+    @Override
+    public GameSimulator.GameObserver forNewGame () {
+        return new GameMoves();
+    }
+
+    /**
+     * Writes any buffered games and closes the file. Does nothing if already closed.
+     * @throws IOException if the file can't be written to
+     */
+    @Override
+    public synchronized void close () throws IOException {
+        if (!this.fileOutput.getChannel().isOpen()) return;
+        this.output.close();
+    }
+}
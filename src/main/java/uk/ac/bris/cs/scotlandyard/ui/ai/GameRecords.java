@@ -0,0 +1,337 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import uk.ac.bris.cs.scotlandyard.model.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Append-only format for complete simulated games, written by {@link GameRecorder}.
+ * The file starts with an {@value #HEADER_SIZE} byte header (magic number and version), followed by
+ * one record per game: its length, the seed it was played with, the location and tickets of each
+ * player, then every move in order. Games are replayed by advancing the starting state with the
+ * recorded moves, so statistics can be computed without rerunning the AI.
+ */
+public class GameRecords {
+    public static final int MAGIC = 0x53594752; // "SYGR"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 8;
+
+    private static final int DOUBLE_MOVE = 0x80;
+    private static final int MRX_INDEX = 0;
+
+    /**
+     * Writes the header for a new file of games.
+     * @param output Stream at the start of the file
+     * @throws IOException if the header can't be written
+     */
+    public static void writeHeader (DataOutput output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+    }
+
+    /**
+     * Writes the record of a game.
+     * @param output Stream to write to
+     * @param seed Seed the game was played with
+     * @param initialState Game state before the first move
+     * @param moves Every move of the game, in order
+     * @throws IOException if the record can't be written
+     * @throws IllegalArgumentException if a location or ticket count doesn't fit in an unsigned byte
+     */
+    public static void writeGame (DataOutput output, long seed, AIGameState initialState, List<Move> moves) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 6 * moves.size());
+        DataOutputStream game = new DataOutputStream(bytes);
+        game.writeLong(seed);
+
+        List<Piece> pieces = new ArrayList<>();
+        pieces.add(Piece.MrX.MRX);
+        for (Piece.Detective detective : Piece.Detective.values()) {
+            if (initialState.getDetectiveLocation(detective).isPresent()) pieces.add(detective);
+        }
+
+        game.writeByte(pieces.size());
+        for (Piece piece : pieces) {
+            int location = piece.isMrX() ?
+                    initialState.getMrXLocation() :
+                    initialState.getDetectiveLocation((Piece.Detective) piece).orElseThrow();
+            Board.TicketBoard tickets = initialState.getPlayerTickets(piece).orElseThrow();
+
+            game.writeByte(GameRecords.getPieceIndex(piece));
+            game.writeByte(BinaryDataSet.toUnsignedByte(location));
+            for (ScotlandYard.Ticket ticket : ScotlandYard.Ticket.values()) {
+                game.writeByte(BinaryDataSet.toUnsignedByte(tickets.getCount(ticket)));
+            }
+        }
+
+        for (Move move : moves) {
+            List<Move.SingleMove> singleMoves = move.accept(new MoveVisitors.SingleMoveVisitor());
+            int flags = singleMoves.size() == 2 ? DOUBLE_MOVE : 0;
+
+            game.writeByte(flags | GameRecords.getPieceIndex(move.commencedBy()));
+            game.writeByte(BinaryDataSet.toUnsignedByte(move.source()));
+            for (Move.SingleMove singleMove : singleMoves) {
+                game.writeByte(singleMove.ticket.ordinal());
+                game.writeByte(BinaryDataSet.toUnsignedByte(singleMove.destination));
+            }
+        }
+
+        output.writeInt(bytes.size());
+        output.write(bytes.toByteArray());
+    }
+
+    /**
+     * Removes a partly written game from the end of a file, left by a crash part way through writing,
+     * so that games appended after it can be read. The file is cut after the last game whose length
+     * is valid and which is completely written.
+     * @param file Existing file of recorded games with a complete header
+     * @return Number of bytes removed.
+     * @throws IOException if the file can't be read or truncated
+     */
+    public static long truncatePartialGame (File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long position = HEADER_SIZE;
+            ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+            while (position + Integer.BYTES <= size) {
+                length.clear();
+                while (length.hasRemaining()) {
+                    if (channel.read(length, position + length.position()) < 0) throw new EOFException();
+                }
+
+                int gameLength = length.getInt(0);
+                if (gameLength < 0 || gameLength > size - position - Integer.BYTES) break;
+                position += Integer.BYTES + gameLength;
+            }
+
+            if (position >= size) return 0;
+            channel.truncate(position);
+            return size - position;
+        }
+    }
+
+    /**
+     * Helper function to writeGame. Mr X is 0, and detectives are numbered from 1 in the order of
+     * {@link Piece.Detective#values()}.
+     */
+    private static int getPieceIndex (Piece piece) {
+        if (piece.isMrX()) return MRX_INDEX;
+        return ((Piece.Detective) piece).ordinal() + 1;
+    }
+
+    /**
+     * Helper function to Reader.
+     * @throws IOException if the index isn't a piece
+     */
+    private static Piece getPiece (int index) throws IOException {
+        if (index == MRX_INDEX) return Piece.MrX.MRX;
+        if (index < 1 || index > Piece.Detective.values().length) throw new IOException("Invalid piece " + index);
+        return Piece.Detective.values()[index - 1];
+    }
+
+    /**
+     * Helper function to Reader.
+     * @throws IOException if the ordinal isn't a ticket
+     */
+    private static ScotlandYard.Ticket getTicket (int ordinal) throws IOException {
+        if (ordinal >= ScotlandYard.Ticket.values().length) throw new IOException("Invalid ticket " + ordinal);
+        return ScotlandYard.Ticket.values()[ordinal];
+    }
+
+    /**
+     * A recorded game. Only the starting state and moves are kept, and the other states are rebuilt
+     * as they are iterated over.
+     */
+    public static class RecordedGame {
+        final private long seed;
+        final private AIGameState initialState;
+        final private ImmutableList<Move> moves;
+
+        private RecordedGame (long seed, AIGameState initialState, ImmutableList<Move> moves) {
+            this.seed = seed;
+            this.initialState = initialState;
+            this.moves = moves;
+        }
+
+        /**
+         * @return Seed the game was played with, which replays the game in {@link GameSimulator#runGame(long)}
+         * with the same iteration budget.
+         */
+        public long getSeed () {
+            return this.seed;
+        }
+
+        public AIGameState getInitialState () {
+            return this.initialState;
+        }
+
+        public ImmutableList<Move> getMoves () {
+            return this.moves;
+        }
+
+        /**
+         * @return Every state of the game from the starting state to the winning state, each built
+         * from the previous one when it is reached.
+         */
+        public Iterable<AIGameState> getStates () {
+            return () -> new Iterator<>() {
+                private AIGameState state = null;
+                private int moveIndex = 0;
+
+                @Override
+                public boolean hasNext () {
+                    return this.state == null || this.moveIndex < moves.size();
+                }
+
+                @Override
+                public AIGameState next () {
+                    if (!this.hasNext()) throw new NoSuchElementException();
+                    if (this.state == null) this.state = initialState;
+                    else this.state = this.state.advance(moves.get(this.moveIndex++));
+                    return this.state;
+                }
+            };
+        }
+
+        /**
+         * @return Winning state of the game, found by replaying every move.
+         */
+        public AIGameState getFinalState () {
+            AIGameState state = this.initialState;
+            for (Move move : this.moves) {
+                state = state.advance(move);
+            }
+            return state;
+        }
+    }
+
+    /**
+     * Reads the games in a file one at a time, so that files of any number of games can be
+     * processed. A partly written game at the end of the file is ignored.
+     */
+    public static class Reader implements Closeable, Iterator<RecordedGame> {
+        final private DataInputStream input;
+        final private GameSetup gameSetup;
+        final private AIGameStateFactory aiGameStateFactory;
+//      Bytes of the file after the games read so far, used to check lengths before allocating for them.
+        private long remaining;
+        private RecordedGame nextGame;
+
+        /**
+         * @param file File of recorded games
+         * @param gameSetup Setup the games were played with
+         * @param aiGameStateFactory Factory to build the starting state of each game
+         * @throws IOException if the file can't be read or has an incorrect header
+         */
+        public Reader (File file, GameSetup gameSetup, AIGameStateFactory aiGameStateFactory) throws IOException {
+            this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+            this.gameSetup = gameSetup;
+            this.aiGameStateFactory = aiGameStateFactory;
+            this.remaining = file.length() - HEADER_SIZE;
+
+            try {
+                if (this.input.readInt() != MAGIC) throw new IOException("File is not a file of recorded games");
+                if (this.input.readInt() != VERSION) throw new IOException("Unsupported recorded games version");
+            } catch (IOException e) {
+                this.input.close();
+                throw e;
+            }
+        }
+
+        /**
+         * @throws UncheckedIOException if the file can't be read or a game is in an invalid format
+         */
+        @Override
+        public boolean hasNext () {
+            if (this.nextGame == null) {
+                try {
+                    this.nextGame = this.readGame();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return this.nextGame != null;
+        }
+
+        /**
+         * @throws UncheckedIOException if the file can't be read or a game is in an invalid format
+         */
+        @Override
+        public RecordedGame next () {
+            if (!this.hasNext()) throw new NoSuchElementException();
+
+            RecordedGame game = this.nextGame;
+            this.nextGame = null;
+            return game;
+        }
+
+        /**
+         * Helper function to hasNext.
+         * @return Next game, or null if there are no complete games left.
+         * @throws IOException if the file can't be read or the game is in an invalid format, including
+         * a negative length
+         */
+        private RecordedGame readGame () throws IOException {
+            if (this.remaining < Integer.BYTES) return null;
+            int length = this.input.readInt();
+            if (length < 0) throw new IOException("Invalid game length " + length);
+            if (length > this.remaining - Integer.BYTES) return null;
+
+            byte[] bytes = new byte[length];
+            this.input.readFully(bytes);
+            this.remaining -= Integer.BYTES + length;
+
+            DataInputStream game = new DataInputStream(new ByteArrayInputStream(bytes));
+            long seed = game.readLong();
+
+            Player mrX = null;
+            ImmutableList.Builder<Player> detectives = ImmutableList.builder();
+            int players = game.readUnsignedByte();
+            for (int i = 0; i < players; i++) {
+                Piece piece = GameRecords.getPiece(game.readUnsignedByte());
+                int location = game.readUnsignedByte();
+
+                ImmutableMap.Builder<ScotlandYard.Ticket, Integer> tickets = ImmutableMap.builder();
+                for (ScotlandYard.Ticket ticket : ScotlandYard.Ticket.values()) {
+                    tickets.put(ticket, game.readUnsignedByte());
+                }
+
+                Player player = new Player(piece, tickets.build(), location);
+                if (piece.isMrX()) mrX = player;
+                else detectives.add(player);
+            }
+            if (mrX == null) throw new IOException("Game has no Mr X");
+
+            ImmutableList.Builder<Move> moves = ImmutableList.builder();
+            while (game.available() > 0) {
+                int header = game.readUnsignedByte();
+                Piece piece = GameRecords.getPiece(header & ~DOUBLE_MOVE);
+                int source = game.readUnsignedByte();
+                ScotlandYard.Ticket ticket1 = GameRecords.getTicket(game.readUnsignedByte());
+                int destination1 = game.readUnsignedByte();
+
+                if ((header & DOUBLE_MOVE) == 0) {
+                    moves.add(new Move.SingleMove(piece, source, ticket1, destination1));
+                }
+                else {
+                    ScotlandYard.Ticket ticket2 = GameRecords.getTicket(game.readUnsignedByte());
+                    int destination2 = game.readUnsignedByte();
+                    moves.add(new Move.DoubleMove(piece, source, ticket1, destination1, ticket2, destination2));
+                }
+            }
+
+            AIGameState initialState = this.aiGameStateFactory.build(this.gameSetup, mrX, detectives.build());
+            return new RecordedGame(seed, initialState, moves.build());
+        }
+
+        @Override
+        public void close () throws IOException {
+            this.input.close();
+        }
+    }
+}
@@ -5,28 +5,60 @@ import io.atlassian.fugue.Pair;
 import uk.ac.bris.cs.scotlandyard.model.*;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Allows games to be simulated for the generation of statistical data about the AI.
+ * Games may be run concurrently (see {@link ConcurrentGameRunner}). Calls to the same observer are
+ * always made one at a time.
  */
 public class GameSimulator {
+    public static final String ITERATIONS_PROPERTY = "scotlandyard.simulator.iterations";
+    public static final String SEED_PROPERTY = "scotlandyard.simulator.seed";
+    public static final String RECORD_PROPERTY = "scotlandyard.simulator.record";
+    public static final int DEFAULT_ITERATIONS = 2000;
+
     private final List<GameObserver> gameObservers;
     private final GameSetup gameSetup;
     private final AIGameStateFactory aiGameStateFactory;
     private final Pair<Long, TimeUnit> timeoutPair;
+    private final int iterationsPerMove; // 0 when searching against the time limit
+    private final Random seeds;
 
     /**
      * Allows data to be collected about simulated game.
      */
     public interface GameObserver {
 
+        /**
+         * Called before a game starts to get the observer to notify about that game. Observers which
+         * keep state about a single game should return a new view for each game, so that concurrent
+         * games don't share it. Views for different games are notified at the same time, so any state
+         * they share must be thread safe.
+         * @return Observer for the new game.
+         */
+        default GameObserver forNewGame() {
+            return this;
+        }
+
         /**
          * Called when simulated game begins
          */
         default void onGameStart() {}
 
+        /**
+         * Called when simulated game begins, with the seed it is played with. Calls
+         * {@link #onGameStart()} unless overridden.
+         * @param seed Seed for the starting locations and the AI.
+         */
+        default void onGameStart(long seed) {
+            this.onGameStart();
+        }
+
         /**
          * Called during a turn in a game
          * @param aiGameState Game state from before move is carried out.
@@ -50,8 +82,54 @@ public class GameSimulator {
 
         this.timeoutPair = timeoutPair;
         this.aiGameStateFactory = aiGameStateFactory;
-        this.gameObservers = new LinkedList<>();
+        this.gameObservers = new CopyOnWriteArrayList<>();
         this.gameSetup = gameSetup;
+        this.iterationsPerMove = 0;
+        this.seeds = new Random();
+    }
+
+    /**
+     * Plays games with a fixed number of iterations per move rather than a time limit, which is much
+     * faster and makes each game reproducible from its seed.
+     * @param gameSetup Game setup for simulated games.
+     * @param aiGameStateFactory Factory to generate game states for the AI
+     * @param iterationsPerMove Iterations searched for each move.
+     * @param seed Seed used to generate the seed of each game.
+     * @throws IllegalArgumentException if iterationsPerMove is less than 1
+     * */
+    public GameSimulator (GameSetup gameSetup, AIGameStateFactory aiGameStateFactory, int iterationsPerMove, long seed) {
+        if (iterationsPerMove < 1) throw new IllegalArgumentException("Iterations per move must be positive");
+
+        this.timeoutPair = new Pair<>(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        this.aiGameStateFactory = aiGameStateFactory;
+        this.gameObservers = new CopyOnWriteArrayList<>();
+        this.gameSetup = gameSetup;
+        this.iterationsPerMove = iterationsPerMove;
+        this.seeds = new Random(seed);
+    }
+
+    /**
+     * Creates a simulator for the data generators, using the iterations per move and seed set by
+     * the {@value #ITERATIONS_PROPERTY} and {@value #SEED_PROPERTY} system properties. If the
+     * {@value #RECORD_PROPERTY} property names a file, every game is also recorded to it with a
+     * {@link GameRecorder}.
+     * @param gameSetup Game setup for simulated games.
+     * @param aiGameStateFactory Factory to generate game states for the AI
+     * @return Simulator with an iteration budget for each move.
+     * @throws IOException if the file to record games to can't be opened
+     * */
+    public static GameSimulator fromSystemProperties (GameSetup gameSetup, AIGameStateFactory aiGameStateFactory) throws IOException {
+        GameSimulator gameSimulator = new GameSimulator(
+                gameSetup,
+                aiGameStateFactory,
+                Integer.getInteger(ITERATIONS_PROPERTY, DEFAULT_ITERATIONS),
+                Long.getLong(SEED_PROPERTY, System.nanoTime())
+        );
+
+        String recordFile = System.getProperty(RECORD_PROPERTY);
+        if (recordFile != null) gameSimulator.registerObserver(new GameRecorder(recordFile));
+
+        return gameSimulator;
     }
 
     /**
@@ -81,20 +159,85 @@ public class GameSimulator {
     }
 
     /**
-     * Start simulation of game
+     * Helper function to runGame. Notifies the view of each observer for the game, holding the lock
+     * of the view. Observers without per-game views are their own view, so concurrent games notify
+     * them one at a time, while separate views are notified in parallel.
+     * @param views View of each observer for the game
+     * @param notification Callback to make to each view
+     */
+    private static void notifyObservers (List<GameObserver> views, Consumer<GameObserver> notification) {
+        for (GameObserver view : views) {
+            synchronized (view) {
+                notification.accept(view);
+            }
+        }
+    }
+
+    /**
+     * Start simulation of game with the next seed. Can be called from several threads at once.
      * */
     public void runGame () {
-        MyAi ai = new MyAi();
+        long seed;
+        synchronized (this.seeds) {
+            seed = this.seeds.nextLong();
+        }
+        this.runGame(seed);
+    }
+
+    /**
+     * Start simulation of game. Can be called from several threads at once.
+     * With an iteration budget, games with the same seed are the same.
+     * @param seed Seed for the starting locations and the AI.
+     * */
+    public void runGame (long seed) {
+        Random random = new Random(seed);
+        MyAi ai = this.iterationsPerMove > 0 ?
+                new MyAi(new IterationBudget(this.iterationsPerMove, random.nextLong())) :
+                new MyAi();
         ai.onStart();
-        this.gameObservers.forEach(GameObserver::onGameStart);
+        this.playGame(seed, random, ai, ai);
+        ai.onTerminate();
+    }
+
+    /**
+     * Plays a game between two AIs, starting from the same locations as {@link #runGame(long)}
+     * with the same seed. Can be called from several threads at once.
+     * The AIs must have been started, and are left running so that they can play more games.
+     * @param seed Seed for the starting locations.
+     * @param mrXAi AI which plays Mr X
+     * @param detectiveAi AI which plays the detectives
+     * @return Winning game state.
+     * */
+    public AIGameState runGame (long seed, Ai mrXAi, Ai detectiveAi) {
+        Random random = new Random(seed);
+
+//      Skips the value runGame(long) uses to seed its AI.
+        random.nextLong();
+        return this.playGame(seed, random, mrXAi, detectiveAi);
+    }
+
+    /**
+     * Helper function to runGame. Plays a game from random starting locations, notifying the
+     * observers of every turn.
+     * @return Winning game state.
+     * */
+    private AIGameState playGame (long seed, Random random, Ai mrXAi, Ai detectiveAi) {
+        List<GameObserver> observers = List.copyOf(this.gameObservers);
+        List<GameObserver> views = new ArrayList<>(observers.size());
+        for (GameObserver observer : observers) {
+            synchronized (observer) {
+                views.add(observer.forNewGame());
+            }
+        }
+        GameSimulator.notifyObservers(views, o -> o.onGameStart(seed));
 
         Piece.Detective[] detectiveColors = Piece.Detective.values();
-        ImmutableList<Integer> detectiveLocations = ScotlandYard.generateDetectiveLocations(new Random().nextInt(), 5);
+        ImmutableList<Integer> detectiveLocations = ScotlandYard.generateDetectiveLocations(random.nextInt(), 5);
 
         Player mrX = new Player(
             Piece.MrX.MRX,
             ScotlandYard.defaultMrXTickets(),
-            ScotlandYard.generateMrXLocation(new Random().nextInt())
+            ScotlandYard.generateMrXLocation(random.nextInt())
         );
 
         List<Player> detectives = new ArrayList<>(5);
@@ -114,14 +257,15 @@ public class GameSimulator {
 
         //Run until winner
         while (aiGameState.getWinner().isEmpty()) {
-            Move move = ai.pickMove(aiGameState, this.timeoutPair);
+            boolean mrXTurn = aiGameState.getAvailableMoves().iterator().next().commencedBy().isMrX();
+            Move move = (mrXTurn ? mrXAi : detectiveAi).pickMove(aiGameState, this.timeoutPair);
             AIGameState finalAiGameState = aiGameState;
-            this.gameObservers.forEach(o -> o.onGameTurn(finalAiGameState, move));
+            GameSimulator.notifyObservers(views, o -> o.onGameTurn(finalAiGameState, move));
             aiGameState = aiGameState.advance(move);
         }
 
         AIGameState finalAiGameState1 = aiGameState;
-        this.gameObservers.forEach(o -> o.onGameWin(finalAiGameState1));
-        ai.onTerminate();
+        GameSimulator.notifyObservers(views, o -> o.onGameWin(finalAiGameState1));
+        return aiGameState;
     }
 }
@@ -0,0 +1,105 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures the memory allocated and the time spent in garbage collection while a move is chosen,
+ * to check that collections don't push moves past their time limit.
+ * Reports are printed for every move when the {@value #REPORT_PROPERTY} system property is true.
+ */
+public class GcMonitor {
+    public static final String REPORT_PROPERTY = "scotlandyard.ai.gcreport";
+
+    final private long startTime;
+    final private long startAllocatedBytes;
+    final private long startCollectionTime;
+    final private long startCollectionCount;
+
+    /**
+     * Starts measuring from the current point.
+     */
+    public GcMonitor () {
+        this.startTime = System.currentTimeMillis();
+        this.startAllocatedBytes = GcMonitor.getAllocatedBytes();
+        this.startCollectionTime = GcMonitor.getCollectionTime();
+        this.startCollectionCount = GcMonitor.getCollectionCount();
+    }
+
+    /**
+     * @return true if reports should be printed.
+     */
+    public static boolean isReportEnabled () {
+        return Boolean.getBoolean(REPORT_PROPERTY);
+    }
+
+    /**
+     * @return Bytes allocated by all live threads, or -1 if the JVM can't measure it.
+     */
+    static long getAllocatedBytes () {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean allocationMXBean
+                && allocationMXBean.isThreadAllocatedMemorySupported()
+                && allocationMXBean.isThreadAllocatedMemoryEnabled()) {
+            long allocated = 0;
+            for (long bytes : allocationMXBean.getThreadAllocatedBytes(threadMXBean.getAllThreadIds())) {
+                allocated += Math.max(0, bytes);
+            }
+            return allocated;
+        }
+        return -1;
+    }
+
+    /**
+     * @return Total time in milliseconds spent in garbage collection by every collector.
+     */
+    static long getCollectionTime () {
+        long time = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, collector.getCollectionTime());
+        }
+        return time;
+    }
+
+    /**
+     * @return Total number of garbage collections by every collector.
+     */
+    static long getCollectionCount () {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * Builds a report of the memory allocated and garbage collection since the monitor was started.
+     * @param iterations Number of MCTS iterations run for the move
+     * @param timeLimit Time allowed for the move in milliseconds
+     * @return Single line report, marked if the move took longer than its time limit.
+     */
+    public String getReport (long iterations, long timeLimit) {
+        long elapsedTime = System.currentTimeMillis() - this.startTime;
+        long allocatedBytes = GcMonitor.getAllocatedBytes();
+        long collectionTime = GcMonitor.getCollectionTime() - this.startCollectionTime;
+        long collectionCount = GcMonitor.getCollectionCount() - this.startCollectionCount;
+
+        String allocation = "allocation not measurable";
+        if (allocatedBytes >= 0 && this.startAllocatedBytes >= 0) {
+            long allocated = allocatedBytes - this.startAllocatedBytes;
+            allocation = String.format("%.1f MB allocated, %d bytes/iteration",
+                    allocated / (1024.0 * 1024.0),
+                    allocated / Math.max(1, iterations));
+        }
+
+        return String.format("Move took %d/%d ms%s: %d iterations, %s, %d collections pausing %d ms",
+                elapsedTime,
+                timeLimit,
+                elapsedTime > timeLimit ? " (OVER LIMIT)" : "",
+                iterations,
+                allocation,
+                collectionCount,
+                collectionTime);
+    }
+}
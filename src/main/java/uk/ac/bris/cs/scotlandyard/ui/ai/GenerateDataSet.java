@@ -1,62 +1,149 @@
 package uk.ac.bris.cs.scotlandyard.ui.ai;
 
-import io.atlassian.fugue.Pair;
-import org.glassfish.grizzly.streams.BufferedInput;
 import uk.ac.bris.cs.scotlandyard.model.*;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.util.*;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Used to generate data regarding how Mr X moves for training a prediction system.
+ * Rows are collected for each game and written together once the game is over, so that concurrent
+ * games never interleave rows and games which fail part way through aren't written. Data sets
+ * whose name ends in ".gz" are gzip compressed, and data sets whose name ends in ".bin" use the
+ * {@link BinaryDataSet} format.
+ * A crash part way through writing can leave a partly written row, record or gzip member at the end
+ * of the data set, which is removed when the data set is next opened, so that every format can be
+ * appended to safely.
  */
-public class GenerateDataSet implements GameSimulator.GameObserver {
-    private final FileWriter output;
+public class GenerateDataSet implements GameSimulator.GameObserver, Closeable {
+    private static final String HEADER =
+            "mrxlocation," +
+            "detectivelocation1," +
+            "detectivelocation2," +
+            "detectivelocation3," +
+            "detectivelocation4," +
+            "detectivelocation5," +
+            "detective1taxi," +
+            "detective1bus," +
+            "detective1train," +
+            "detective2taxi," +
+            "detective2bus," +
+            "detective2train," +
+            "detective3taxi," +
+            "detective3bus," +
+            "detective3train," +
+            "detective4taxi," +
+            "detective4bus," +
+            "detective4train," +
+            "detective5taxi," +
+            "detective5bus," +
+            "detective5train," +
+            "mrxtaxi," +
+            "mrxbus," +
+            "mrxtrain," +
+            "mrxdouble," +
+            "mrxsecret," +
+            "turnsleft," +
+            "newmrxlocation" +
+            "\n";
 
     /**
+     * When written games are pushed to the file.
+     */
+    public enum FlushPolicy {
+        /**
+         * Only when the buffer is full or the data set is closed.
+         */
+        ON_CLOSE,
+
+        /**
+         * After each game, so that a crash loses at most the buffered rows of running games.
+         */
+        PER_GAME,
+
+        /**
+         * After each game, also forcing the file to disk so that games survive power loss.
+         */
+        PER_GAME_FSYNC
+    }
+
+    private final FileOutputStream fileOutput;
+    private final OutputStream output;
+    private final FlushPolicy flushPolicy;
+    private final boolean binary;
+
+    /**
+     * Rows of a single game, written when the game is won.
+     */
+    private class GameRows implements GameSimulator.GameObserver {
+        private final ByteArrayOutputStream rows = new ByteArrayOutputStream();
+
+        @Override
+        public void onGameTurn (AIGameState aiGameState, Move move) {
+            try {
+                GenerateDataSet.this.appendRow(this.rows, aiGameState, move);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void onGameWin (AIGameState aiGameState) {
+            GenerateDataSet.this.writeRows(this.rows);
+        }
+    }
+
+    /**
+     * Writes rows with the {@link FlushPolicy#PER_GAME} policy.
      * @throws IOException can't close the data set file or find the file
      * */
     public GenerateDataSet (String filename) throws IOException {
+        this(filename, FlushPolicy.PER_GAME);
+    }
+
+    /**
+     * @param filename Data set to append to, gzip compressed if the name ends in ".gz" and binary if
+     *                 the name ends in ".bin"
+     * @param flushPolicy When written games are pushed to the file
+     * @throws IOException can't close the data set file or find the file, or an existing data set is
+     * in a different format or can't be truncated to its last complete row
+     * */
+    public GenerateDataSet (String filename, FlushPolicy flushPolicy) throws IOException {
         File file = new File(filename);
+        boolean compressed = filename.endsWith(".gz");
 
-        if (file.exists()) {
-            this.output = new FileWriter(file, true);
-        } else {
-            this.output = new FileWriter(file, true);
-            this.output.append(
-                    "mrxlocation," +
-                    "detectivelocation1," +
-                    "detectivelocation2," +
-                    "detectivelocation3," +
-                    "detectivelocation4," +
-                    "detectivelocation5," +
-                    "detective1taxi," +
-                    "detective1bus," +
-                    "detective1train," +
-                    "detective2taxi," +
-                    "detective2bus," +
-                    "detective2train," +
-                    "detective3taxi," +
-                    "detective3bus," +
-                    "detective3train," +
-                    "detective4taxi," +
-                    "detective4bus," +
-                    "detective4train," +
-                    "detective5taxi," +
-                    "detective5bus," +
-                    "detective5train," +
-                    "mrxtaxi," +
-                    "mrxbus," +
-                    "mrxtrain," +
-                    "mrxdouble," +
-                    "mrxsecret," +
-                    "turnsleft," +
-                    "newmrxlocation" +
-                    "\n"
-            );
+        this.flushPolicy = flushPolicy;
+        this.binary = filename.endsWith(".bin");
+
+//      Removes anything left partly written by a crash, which would otherwise misalign every binary
+//      record appended after it, join the next text row onto it, or hide every gzip member after it.
+        if (file.exists() && file.length() > 0) {
+            if (this.binary) {
+                new BinaryDataSet.Reader(file).close();
+                BinaryDataSet.truncatePartialRecord(file);
+            }
+            else if (compressed) GenerateDataSet.repairCompressed(file);
+            else GenerateDataSet.truncatePartialRow(file);
+        }
+        boolean newFile = !file.exists() || file.length() == 0;
+
+        this.fileOutput = new FileOutputStream(file, true);
+
+//      Appended gzip members are read back as a single stream.
+        OutputStream stream = compressed ? new GZIPOutputStream(this.fileOutput, true) : this.fileOutput;
+        this.output = new BufferedOutputStream(stream, 1 << 16);
+
+        if (newFile) {
+            if (this.binary) BinaryDataSet.writeHeader(this.output);
+            else this.output.write(HEADER.getBytes(StandardCharsets.UTF_8));
             this.output.flush();
         }
 
@@ -64,66 +151,177 @@ public class GenerateDataSet implements GameSimulator.GameObserver {
 //      (based on https://stackoverflow.com/questions/5824049/running-a-method-when-closing-the-program)
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             try {
-                output.close();
+                this.close();
             } catch (IOException e) {
-                System.err.println("Couldn't close dataset.txt");
+                System.err.println("Couldn't close " + filename);
             }
         }));
     }
 
     /**
-     * Creates data for turn
-     * */
-    @Override
-    public void onGameTurn (AIGameState aiGameState, Move move) {
+     * Removes a partly written row from the end of a text data set, left by a crash part way through
+     * writing, so that rows appended after it start on a new line.
+     * @param file Existing text data set
+     * @return Number of bytes removed.
+     * @throws IOException if the file can't be read or truncated
+     */
+    static long truncatePartialRow (File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
 
-        //If AI is mr X
-        if (aiGameState.getAvailableMoves().asList().get(0).commencedBy().equals(Piece.MrX.MRX)) {
+//          Searches backwards from the end for the newline ending the last complete row.
+            long end = size;
+            while (end > 0) {
+                long start = Math.max(0, end - buffer.capacity());
+                buffer.clear().limit((int) (end - start));
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, start + buffer.position()) < 0) throw new EOFException();
+                }
 
+                for (int i = buffer.limit() - 1; i >= 0; i--) {
+                    if (buffer.get(i) != '\n') continue;
+                    long rowsEnd = start + i + 1;
+                    channel.truncate(rowsEnd);
+                    return size - rowsEnd;
+                }
+                end = start;
+            }
 
-            if (aiGameState.advance(move).getWinner().isEmpty()) {
-                List<Integer> lastState = new ArrayList<>(25);
-                lastState.addAll(aiGameState.getGameStateList());
-                lastState.add(move.accept(new MoveVisitors.DestinationVisitor()));
+//          Not even the header was written in full.
+            channel.truncate(0);
+            return size;
+        }
+    }
 
-                try {
-                    String line = lastState.stream().map(String::valueOf).collect(Collectors.joining(","));
-                    this.output.append(line).append("\n");
-                    this.output.flush();
-                } catch (IOException e) {
-                    System.err.println("Couldn't add to file");
-                    System.exit(1);
+    /**
+     * Rewrites a gzip compressed data set whose last member was left unfinished by a crash. Appended
+     * members can't be read past an unfinished one, so the complete rows are copied into a single
+     * member which replaces the file. The file is only read if it is complete.
+     * @param file Existing gzip compressed data set
+     * @return true if the file was rewritten.
+     * @throws IOException if the file can't be read, isn't gzip compressed, or can't be replaced
+     */
+    static boolean repairCompressed (File file) throws IOException {
+        byte[] buffer = new byte[1 << 16];
+//      Only checks that the file can be read to the end.
+        try (InputStream input = new GZIPInputStream(new FileInputStream(file))) {
+            while (input.read(buffer) != -1) continue;
+            return false;
+        } catch (EOFException e) {
+//          Rewritten below.
+        }
+
+        Path target = file.toPath().toAbsolutePath();
+        Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            long rowsWritten = 0;
+            try (InputStream input = new GZIPInputStream(new FileInputStream(file));
+                 OutputStream output = new GZIPOutputStream(new FileOutputStream(temporary.toFile()))) {
+                ByteArrayOutputStream partialRow = new ByteArrayOutputStream();
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    int rowsEnd = read;
+                    while (rowsEnd > 0 && buffer[rowsEnd - 1] != '\n') rowsEnd--;
+                    if (rowsEnd > 0) {
+                        partialRow.writeTo(output);
+                        output.write(buffer, 0, rowsEnd);
+                        rowsWritten += partialRow.size() + rowsEnd;
+                        partialRow.reset();
+                    }
+                    partialRow.write(buffer, rowsEnd, read - rowsEnd);
                 }
+            } catch (EOFException e) {
+//              The rest of the file is the unfinished member, whose partial row was not copied.
             }
 
+//          An empty file has its header written again, which an empty member would prevent.
+            if (rowsWritten == 0) Files.write(target, new byte[0]);
+            else Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Helper function to GameRows. Adds a row for the turn if it is Mr X's and he hasn't lost.
+     * @param rows Rows of the game
+     * @param aiGameState Game state from before move is carried out.
+     * @param move move to be used on aiGameState.
+     */
+    private void appendRow (ByteArrayOutputStream rows, AIGameState aiGameState, Move move) throws IOException {
+        if (!move.commencedBy().isMrX() || !aiGameState.advance(move).getWinner().isEmpty()) return;
+
+        if (this.binary) {
+            BinaryDataSet.writeRecord(rows, aiGameState, move);
+            return;
+        }
+
+        StringBuilder row = new StringBuilder(3 * BinaryDataSet.RECORD_SIZE);
+        for (int value : aiGameState.getGameStateList()) {
+            row.append(value).append(',');
+        }
+        int destination = move.accept(new MoveVisitors.DestinationVisitor());
+        row.append(destination).append('\n');
+        rows.write(row.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Helper function to GameRows. Writes the rows of a game as one batch.
+     * @param rows Rows of the game
+     */
+    private synchronized void writeRows (ByteArrayOutputStream rows) {
+        try {
+            rows.writeTo(this.output);
+            if (this.flushPolicy != FlushPolicy.ON_CLOSE) this.output.flush();
+            if (this.flushPolicy == FlushPolicy.PER_GAME_FSYNC) this.fileOutput.getChannel().force(false);
+        } catch (IOException e) {
+            System.err.println("Couldn't add to file");
+            System.exit(1);
         }
     }
 
+    /**
+     * @return Collector for the rows of a new game.
+     */
+    @Override
+    public GameSimulator.GameObserver forNewGame () {
+        return new GameRows();
+    }
+
+    /**
+     * Writes any buffered rows and closes the file. Does nothing if already closed.
+     * @throws IOException if the file can't be written to
+     */
+    @Override
+    public synchronized void close () throws IOException {
+        if (!this.fileOutput.getChannel().isOpen()) return;
+        this.output.close();
+    }
+
     /**
      * Runs dataset generation.
      * @param args Arguments passed in from command line.
      */
     @SuppressWarnings("UnstableApiUsage")
-    public static void main (String[] args) {
+    public static void main (String[] args) throws InterruptedException {
         try {
             GenerateDataSet generateDataSet = new GenerateDataSet("dataset.txt");
             AIGameStateFactory aiGameStateFactory = new AIGameStateFactory();
 
-            GameSimulator gameSimulator = new GameSimulator(
+//          Searches a fixed number of iterations per move, which is much faster than the time limit.
+            GameSimulator gameSimulator = GameSimulator.fromSystemProperties(
                     new GameSetup(
                         ScotlandYard.standardGraph(),
                         ScotlandYard.STANDARD24MOVES
                     ),
-                    aiGameStateFactory,
-                    new Pair<>((long) 15, TimeUnit.SECONDS)
+                    aiGameStateFactory
             );
 
             gameSimulator.registerObserver(generateDataSet);
 
-            while (true) {
-                gameSimulator.runGame();
-                System.gc();
-            }
+            new ConcurrentGameRunner(gameSimulator).runGames(Long.MAX_VALUE);
         } catch (IOException e) {
             System.err.println("Couldn't read/write to dataset.txt");
             System.exit(1);
@@ -1,7 +1,6 @@
 package uk.ac.bris.cs.scotlandyard.ui.ai;
 
 import com.google.common.collect.ImmutableSet;
-import io.atlassian.fugue.Pair;
 import uk.ac.bris.cs.scotlandyard.model.GameSetup;
 import uk.ac.bris.cs.scotlandyard.model.Move;
 import uk.ac.bris.cs.scotlandyard.model.Piece;
@@ -9,16 +8,25 @@ import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
 import uk.ac.bris.cs.scotlandyard.ui.ai.Heuristics.LocationCategorization.MinDistance;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.List;
-import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import static uk.ac.bris.cs.scotlandyard.ui.ai.Heuristics.*;
 
+/**
+ * Collects how often Mr X is in each minimum distance category from simulated games.
+ * Concurrent games add to the same counters, and the data is saved to {@value #FILENAME} every
+ * {@value #SAVE_INTERVAL_PROPERTY} seconds (default {@value #DEFAULT_SAVE_INTERVAL}) and when the
+ * JVM shuts down, rather than after every turn.
+ */
 public class GenerateMinDistanceData implements GameSimulator.GameObserver {
+    public static final String FILENAME = "min-distance-data.txt";
+    public static final String SAVE_INTERVAL_PROPERTY = "scotlandyard.simulator.saveinterval";
+    public static final int DEFAULT_SAVE_INTERVAL = 30;
 
     private final LocationCategorization.MinDistanceData data;
     private final DistancesSingleton distances;
@@ -31,7 +39,7 @@ public class GenerateMinDistanceData implements GameSimulator.GameObserver {
     public GenerateMinDistanceData () throws IOException {
         this.distances = DistancesSingleton.getInstance();
 
-        File file = new File("min-distance-data.txt");
+        File file = new File(FILENAME);
         if (file.exists()) {
             this.data = LocationCategorization.MinDistanceData.buildFromContinuedFile(file);
         }
@@ -43,6 +51,24 @@ public class GenerateMinDistanceData implements GameSimulator.GameObserver {
         this.possibleLocationsFactory = new PossibleLocationsFactory();
     }
 
+    /**
+     * Constructor for the view of a single game, sharing the data of the registered observer.
+     * @param observer Registered observer
+     */
+    private GenerateMinDistanceData (GenerateMinDistanceData observer) {
+        this.data = observer.data;
+        this.distances = observer.distances;
+        this.possibleLocationsFactory = observer.possibleLocationsFactory;
+    }
+
+    /**
+     * @return View with its own possible locations, since these are different in each game.
+     */
+    @Override
+    public GameSimulator.GameObserver forNewGame () {
+        return new GenerateMinDistanceData(this);
+    }
+
     /**
      * Initialises {@link PossibleLocations} to initial state on game start.
      */
@@ -52,22 +78,35 @@ public class GenerateMinDistanceData implements GameSimulator.GameObserver {
     }
 
     /**
-     * Writes the current Map of category data to 'min-distance-data.txt'
+     * Writes the current Map of category data to {@value #FILENAME}. Synchronized so that the
+     * periodic save and the save at shutdown don't write at the same time.
      */
-    private void writeDataToFile () {
-        StringBuilder outputString = new StringBuilder("category,total-hits,total-possible\n");
-        for (MinDistance category : MinDistance.values()) {
-            outputString.append(category.name()).append(",");
-
-            outputString.append(this.data.getTotalHits(category)).append(",");
-            outputString.append(this.data.getTotalPossible(category)).append("\n");
-        }
-        try (FileWriter output = new FileWriter("min-distance-data.txt", false)) {
-                output.write(outputString.toString());
+    private synchronized void writeDataToFile () {
+        try {
+            this.data.writeToFile(new File(FILENAME));
         } catch (IOException e) {
-            System.err.println("Cannot write to 'min-distance-data.txt'");
-            System.exit(1);
+            System.err.println("Cannot write to '" + FILENAME + "'");
+            return;
         }
+        System.out.println("Writing update to file");
+    }
+
+    /**
+     * Saves the data periodically on a daemon thread, and once more when the JVM shuts down.
+     * @param saveInterval Seconds between saves
+     */
+    private void startSaving (long saveInterval) {
+        ScheduledExecutorService saveExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "min-distance-data-save");
+            thread.setDaemon(true);
+            return thread;
+        });
+        saveExecutor.scheduleWithFixedDelay(this::writeDataToFile, saveInterval, saveInterval, TimeUnit.SECONDS);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            saveExecutor.shutdownNow();
+            this.writeDataToFile();
+        }));
     }
 
     /**
@@ -109,36 +148,31 @@ public class GenerateMinDistanceData implements GameSimulator.GameObserver {
                     .toList());
 
             minDistanceSet.forEach(this.data::addMiss);
-
-            this.writeDataToFile();
-            System.out.println("Writing update to file");
         }
     }
 
     @SuppressWarnings("UnstableApiUsage")
-    public static void main (String[] args) {
+    public static void main (String[] args) throws InterruptedException {
         try {
             AIGameStateFactory aiGameStateFactory = new AIGameStateFactory();
             GenerateMinDistanceData generateMinDistanceData = new GenerateMinDistanceData();
 
-            GameSimulator gameSimulator = new GameSimulator(
+//          Searches a fixed number of iterations per move, which is much faster than the time limit.
+            GameSimulator gameSimulator = GameSimulator.fromSystemProperties(
                     new GameSetup(
                         ScotlandYard.standardGraph(),
                         ScotlandYard.STANDARD24MOVES
                     ),
-                    aiGameStateFactory,
-                    new Pair<>((long) 15, TimeUnit.SECONDS)
+                    aiGameStateFactory
             );
 
             gameSimulator.registerObserver(generateMinDistanceData);
+            generateMinDistanceData.startSaving(Math.max(1, Integer.getInteger(SAVE_INTERVAL_PROPERTY, DEFAULT_SAVE_INTERVAL)));
 
-            while (true) {
-                gameSimulator.runGame();
-                System.gc();
-            }
+            new ConcurrentGameRunner(gameSimulator).runGames(Long.MAX_VALUE);
 
         } catch (IOException e) {
-            System.err.println("Couldn't read/write to dataset.txt");
+            System.err.println("Couldn't read/write to " + FILENAME);
             System.exit(1);
         }
     }
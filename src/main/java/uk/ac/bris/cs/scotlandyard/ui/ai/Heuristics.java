@@ -12,11 +12,20 @@ import uk.ac.bris.cs.scotlandyard.model.Piece;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
 
 //Wrapper class for all Heuristics (classes)
 public interface Heuristics {
@@ -128,7 +137,8 @@ public interface Heuristics {
             }
         }
 
-            final private List<FilterStrategy> filterStrategies = ImmutableList.of(
+//          The strategies hold no state, so every instance shares them.
+            private static final List<FilterStrategy> filterStrategies = ImmutableList.of(
                     new RemoveFromFirstTwoRounds(),
                     new RemoveFromRevealingRound(),
                     new AllPossibleLocationsHaveTaxis()
@@ -163,39 +173,43 @@ public interface Heuristics {
          * Uses domain knowledge to make move choices in playouts more realistic.
          */
         class EGreedyPlayouts {
-            final public double EPSILON = 0.2;
+            final private double epsilon;
             final private DistancesSingleton distances;
 
             public EGreedyPlayouts() {
+                this(0.2);
+            }
+
+            /**
+             * @param epsilon Probability of playing a random move instead of the greedy move
+             */
+            public EGreedyPlayouts(double epsilon) {
+                this.epsilon = epsilon;
                 this.distances = DistancesSingleton.getInstance();
             }
 
+            public double getEpsilon() {
+                return this.epsilon;
+            }
+
             /**
              * Heuristic that minimizes the distance to MrX.
-             * Select the move that minimizes the sum of the distances to all possible
-             * locations to MrX. If there are multiple minimum solution, choose the most
-             * recently inspected best Move
+             * Select the move that minimizes the expected distance to MrX, weighting each
+             * possible location by its probability. If there are multiple minimum solution,
+             * choose the first inspected best Move
              */
             public Move getDetectiveBestMove(
                     ImmutableSet<Move> moves,
                     PossibleLocations possibleLocations) {
-                ImmutableSet<Integer> locations = possibleLocations.getLocations();
-
                 //Assume max distance
-                int minimumDistance = Integer.MAX_VALUE;
+                double minimumDistance = Double.POSITIVE_INFINITY;
                 Move bestMove = moves.asList().get(0);
                 MoveVisitors.DestinationVisitor destinationVisitor = new MoveVisitors.DestinationVisitor();
 
                 for (Move move : moves) {
-                    int destination = move.accept(destinationVisitor);
-                    int sumDistance = 0;
-
-//              Not using stream chain due to worse performance.
-                    for (int location : locations) {
-                        sumDistance += distances.get(location, destination);
-                    }
-                    if (sumDistance < minimumDistance) {
-                        minimumDistance = sumDistance;
+                    double expectedDistance = this.getDetectiveMoveScore(move, possibleLocations, destinationVisitor);
+                    if (expectedDistance < minimumDistance) {
+                        minimumDistance = expectedDistance;
                         bestMove = move;
                     }
                 }
@@ -210,20 +224,14 @@ public interface Heuristics {
              * recently inspected best Move
              */
             public Move getMrXBestMove(ImmutableSet<Move> moves, AIGameState gameState) {
-                DistancesSingleton distances = DistancesSingleton.getInstance();
                 List<Integer> detectiveLocations = gameState.getDetectiveLocations();
 
                 //Assume closest distance (0)
                 int maximinDistance = 0;
                 Move bestMove = moves.asList().get(0);
+                MoveVisitors.DestinationVisitor destinationVisitor = new MoveVisitors.DestinationVisitor();
                 for (Move move : moves) {
-                    int destination = move.accept(new MoveVisitors.DestinationVisitor());
-                    int minDistance = detectiveLocations
-                            .stream()
-                            .map(l -> distances.get(l, destination))
-                            .mapToInt(Integer::intValue)
-                            .min()
-                            .orElseThrow();
+                    int minDistance = this.getMrXMoveScore(move, detectiveLocations, destinationVisitor);
                     if (minDistance > maximinDistance) {
                         maximinDistance = minDistance;
                         bestMove = move;
@@ -232,6 +240,327 @@ public interface Heuristics {
 
                 return bestMove;
             }
+
+            /**
+             * Scores a detective move by the expected distance from its destination to Mr X, using the
+             * probability of each possible location. Lower scores are better for the detectives.
+             * @param move Move to score
+             * @param possibleLocations Possible locations of Mr X
+             * @param destinationVisitor Visitor used to extract the destination of the move
+             * @return Expected distance to Mr X
+             */
+            public double getDetectiveMoveScore(Move move,
+                                                PossibleLocations possibleLocations,
+                                                MoveVisitors.DestinationVisitor destinationVisitor) {
+                int destination = move.accept(destinationVisitor);
+                double expectedDistance = 0;
+
+//              Not using stream chain due to worse performance.
+                for (int location : possibleLocations.getLocations()) {
+                    expectedDistance += possibleLocations.getProbability(location) * this.distances.get(location, destination);
+                }
+                return expectedDistance;
+            }
+
+            /**
+             * Scores a Mr X move by the distance from its destination to the closest detective.
+             * Higher scores are better for Mr X.
+             * @param move Move to score
+             * @param detectiveLocations Locations of all detectives
+             * @param destinationVisitor Visitor used to extract the destination of the move
+             * @return Minimum distance from the destination to any detective
+             */
+            public int getMrXMoveScore(Move move,
+                                       List<Integer> detectiveLocations,
+                                       MoveVisitors.DestinationVisitor destinationVisitor) {
+                int destination = move.accept(destinationVisitor);
+                int minDistance = Integer.MAX_VALUE;
+                for (int location : detectiveLocations) {
+                    minDistance = Math.min(minDistance, this.distances.get(location, destination));
+                }
+                return minDistance;
+            }
+        }
+
+        /**
+         * Progressive widening.
+         * Limits the number of children a node can expand based on how often it has been visited, so that
+         * nodes with a large branching factor (Mr X holding double tickets) are searched deeper before
+         * they are searched wider. Moves are expanded in the order given by {@link MovePriors}.
+         */
+        class ProgressiveWidening {
+            final private double coefficient;
+            final private double exponent;
+
+            public ProgressiveWidening() {
+                this(2.0, 0.5);
+            }
+
+            /**
+             * @param coefficient Number of children a node may have on its first visit
+             * @param exponent Rate at which the number of children grows with the visits of the node
+             */
+            public ProgressiveWidening(double coefficient, double exponent) {
+                this.coefficient = coefficient;
+                this.exponent = exponent;
+            }
+
+            public double getCoefficient() {
+                return this.coefficient;
+            }
+
+            public double getExponent() {
+                return this.exponent;
+            }
+
+            /**
+             * @param totalPlays Total plays of the node being widened
+             * @return Maximum number of children the node may have after totalPlays visits
+             */
+            public int getMaxChildren(double totalPlays) {
+                return (int) Math.ceil(this.getCoefficient() * Math.pow(totalPlays + 1, this.getExponent()));
+            }
+        }
+
+        /**
+         * Move priors used to order expansion and in PUCT selection.
+         * Each move is given a prior probability from a softmax over the E-greedy distance scores, optionally
+         * weighted by how often Mr X made the same transition in a data set created by {@link GenerateDataSet}.
+         */
+        class MovePriors {
+            final private EGreedyPlayouts eGreedyPlayouts;
+            final private TransitionModel transitionModel;
+            final private double temperature;
+            final private double doubleMovePenalty;
+
+            public MovePriors() {
+                this(null);
+            }
+
+            /**
+             * @param transitionModel Model of Mr X's moves, or null if only distances should be used.
+             */
+            public MovePriors(TransitionModel transitionModel) {
+                this(transitionModel, 1.0, 1.0);
+            }
+
+            /**
+             * @param transitionModel Model of Mr X's moves, or null if only distances should be used.
+             * @param temperature Softmax temperature in distance units
+             * @param doubleMovePenalty Score subtracted from double moves
+             */
+            public MovePriors(TransitionModel transitionModel, double temperature, double doubleMovePenalty) {
+                this.eGreedyPlayouts = new EGreedyPlayouts();
+                this.transitionModel = transitionModel;
+                this.temperature = temperature;
+                this.doubleMovePenalty = doubleMovePenalty;
+            }
+
+            /**
+             * @param temperature Softmax temperature in distance units
+             * @param doubleMovePenalty Score subtracted from double moves
+             * @return Move priors with the same transition model and the given parameters.
+             */
+            public MovePriors withParameters(double temperature, double doubleMovePenalty) {
+                return new MovePriors(this.transitionModel, temperature, doubleMovePenalty);
+            }
+
+            /**
+             * Builds move priors which use a data set if it exists. The data set is read in full, so this
+             * should be called once rather than for every game.
+             * @param filename Path of the data set created by {@link GenerateDataSet}
+             * @return Move priors with a transition model if the data set could be read.
+             */
+            static public MovePriors buildFromDataSet(String filename) {
+                File file = new File(filename);
+                if (!file.exists()) return new MovePriors();
+
+                try {
+                    return new MovePriors(TransitionModel.buildFromDataSet(file));
+                } catch (IOException e) {
+                    System.err.println("Cannot read " + filename + ", using distance priors only.");
+                    return new MovePriors();
+                }
+            }
+
+            /**
+             * @return Softmax temperature in distance units. Lower values make the priors greedier.
+             */
+            public double getTemperature() {
+                return this.temperature;
+            }
+
+            /**
+             * @return Score subtracted from double moves so that Mr X doesn't waste double tickets.
+             */
+            public double getDoubleMovePenalty() {
+                return this.doubleMovePenalty;
+            }
+
+            /**
+             * Sorts moves in place so that the most promising move is at the end of the list, allowing the
+             * next move to expand to be removed in constant time, and calculates their prior probabilities.
+             * @param moves Moves to order
+             * @param gameState Game state the moves are made from
+             * @param possibleLocations Possible locations of Mr X
+             * @return Prior probabilities of the moves in the same order as the sorted moves.
+             */
+            public double[] orderMovesAndCalculatePriors(List<Move> moves,
+                                                         AIGameState gameState,
+                                                         PossibleLocations possibleLocations) {
+                int size = moves.size();
+                if (size == 0) return new double[0];
+
+                boolean isMrX = moves.get(0).commencedBy().isMrX();
+                List<Integer> detectiveLocations = gameState.getDetectiveLocations();
+                MoveVisitors.DestinationVisitor destinationVisitor = new MoveVisitors.DestinationVisitor();
+
+                double[] scores = new double[size];
+                double maxScore = Double.NEGATIVE_INFINITY;
+                for (int i = 0; i < size; i++) {
+                    Move move = moves.get(i);
+                    if (isMrX) {
+                        scores[i] = this.eGreedyPlayouts.getMrXMoveScore(move, detectiveLocations, destinationVisitor);
+                        if (move instanceof Move.DoubleMove) scores[i] -= this.getDoubleMovePenalty();
+                    } else {
+                        scores[i] = -this.eGreedyPlayouts.getDetectiveMoveScore(
+                                move,
+                                possibleLocations,
+                                destinationVisitor);
+                    }
+                    maxScore = Math.max(maxScore, scores[i]);
+                }
+
+//              Packs the weight into the upper half and the index into the lower half of a long, so the moves
+//              can be sorted without boxing. The bits of a positive float are ordered the same as its value.
+                long[] keys = new long[size];
+                double[] weights = new double[size];
+                double totalWeight = 0;
+                for (int i = 0; i < size; i++) {
+                    weights[i] = Math.exp((scores[i] - maxScore) / this.getTemperature());
+                    if (isMrX && this.transitionModel != null) {
+                        weights[i] *= this.transitionModel.getWeight(
+                                moves.get(i).source(),
+                                moves.get(i).accept(destinationVisitor)
+                        );
+                    }
+                    totalWeight += weights[i];
+                    keys[i] = ((long) Float.floatToIntBits((float) weights[i]) << 32) | i;
+                }
+                Arrays.sort(keys);
+
+                List<Move> ordered = new ArrayList<>(size);
+                double[] priors = new double[size];
+                for (int i = 0; i < size; i++) {
+                    int index = (int) keys[i];
+                    ordered.add(moves.get(index));
+                    priors[i] = weights[index] / totalWeight;
+                }
+                moves.clear();
+                moves.addAll(ordered);
+
+                return priors;
+            }
+
+            /**
+             * Counts of Mr X's transitions between locations, learnt from a data set.
+             */
+            static public class TransitionModel {
+                final private int[][] counts;
+
+                private TransitionModel(int[][] counts) {
+                    this.counts = counts;
+                }
+
+                /**
+                 * A partly written row or gzip member at the end of the data set, left by a crash or by a
+                 * data set still being written, is ignored.
+                 * @param file Data set created by {@link GenerateDataSet}, gzip compressed if the name ends
+                 *             in ".gz" and in the {@link BinaryDataSet} format if it ends in ".bin"
+                 * @return Transition model containing counts of each transition in the data set.
+                 * @throws IOException if the file can't be read or is in an incorrect format.
+                 */
+                static public TransitionModel buildFromDataSet(File file) throws IOException {
+                    int[][] counts = new int[200][200];
+
+                    if (file.getName().endsWith(".bin")) {
+                        try (BinaryDataSet.Reader reader = new BinaryDataSet.Reader(file)) {
+                            for (int i = 0; i < reader.size(); i++) {
+                                int source = reader.get(i, BinaryDataSet.MRX_LOCATION);
+                                int destination = reader.get(i, BinaryDataSet.NEW_MRX_LOCATION);
+                                if (source >= 200 || destination >= 200) throw new IOException("File in invalid format");
+                                counts[source][destination]++;
+                            }
+                        }
+                        return new TransitionModel(counts);
+                    }
+
+//                  The file is closed even if it isn't valid gzip, which the GZIPInputStream
+//                  constructor checks by reading the header. Closing it twice has no effect.
+                    try (InputStream fileInput = new FileInputStream(file);
+                         InputStream decompressedInput = file.getName().endsWith(".gz")
+                                 ? new GZIPInputStream(fileInput)
+                                 : fileInput) {
+                        TransitionModel.countRows(decompressedInput, counts);
+                    }
+
+                    return new TransitionModel(counts);
+                }
+
+                /**
+                 * Helper function to buildFromDataSet. Counts the transition of every complete row after
+                 * the header. Rows are only counted once their newline is read, so a partly written last
+                 * row isn't.
+                 * Rows are split before decoding, since a reader decoding ahead would drop the rows it had
+                 * read if the stream ended in an unfinished gzip member.
+                 * @param input Decompressed data set
+                 * @param counts Counts of each transition to add to
+                 * @throws IOException if the file can't be read or a row is in an incorrect format.
+                 */
+                private static void countRows(InputStream input, int[][] counts) throws IOException {
+                    byte[] buffer = new byte[1 << 16];
+                    ByteArrayOutputStream row = new ByteArrayOutputStream();
+                    boolean header = true;
+
+                    while (true) {
+                        int read;
+                        try {
+                            read = input.read(buffer);
+                        } catch (EOFException e) {
+//                          Only a gzip member which was never finished ends before the end of its stream.
+                            return;
+                        }
+                        if (read == -1) return;
+
+                        int rowStart = 0;
+                        for (int i = 0; i < read; i++) {
+                            if (buffer[i] != '\n') continue;
+
+                            row.write(buffer, rowStart, i - rowStart);
+                            rowStart = i + 1;
+                            if (!header) {
+                                String[] fields = row.toString(StandardCharsets.UTF_8).split(",");
+                                if (fields.length != 28) throw new IOException("File in invalid format");
+                                try {
+                                    counts[Integer.parseInt(fields[0])][Integer.parseInt(fields[27])]++;
+                                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                                    throw new IOException("File in invalid format");
+                                }
+                            }
+                            header = false;
+                            row.reset();
+                        }
+                        row.write(buffer, rowStart, read - rowStart);
+                    }
+                }
+
+                /**
+                 * @return Laplace smoothed weight of the transition from source to destination.
+                 */
+                public double getWeight(int source, int destination) {
+                    return this.counts[source][destination] + 1;
+                }
+            }
         }
 
         /**
@@ -240,7 +569,18 @@ public interface Heuristics {
          */
         class CoalitionReduction {
 
-            private final double r = 0.375;
+            private final double r;
+
+            public CoalitionReduction() {
+                this(0.375);
+            }
+
+            /**
+             * @param r Fraction of the value of a win taken away when another detective makes the capture
+             */
+            public CoalitionReduction(double r) {
+                this.r = r;
+            }
 
             public double getR() {
                 return this.r;
@@ -263,13 +603,83 @@ public interface Heuristics {
             }
         }
 
+        /**
+         * Rapid action value estimation (all-moves-as-first).
+         * Moves made later in an iteration by the same piece are counted as if they were played first, giving
+         * estimates for sibling moves long before they have many plays of their own. The estimate is blended
+         * with the Monte Carlo value using a weight which decays as the child gains plays.
+         */
+        class Rave {
+            final private boolean enabled;
+            final private double equivalence;
+
+            public Rave() {
+                this(true);
+            }
+
+            /**
+             * @param enabled whether all-moves-as-first statistics should be collected and used.
+             */
+            public Rave(boolean enabled) {
+                this(enabled, 250);
+            }
+
+            /**
+             * @param enabled whether all-moves-as-first statistics should be collected and used.
+             * @param equivalence Number of plays at which the Monte Carlo value and AMAF value are weighted equally
+             */
+            public Rave(boolean enabled, double equivalence) {
+                this.enabled = enabled;
+                this.equivalence = equivalence;
+            }
+
+            public boolean isEnabled() {
+                return this.enabled;
+            }
+
+            /**
+             * @return Number of plays at which the Monte Carlo value and AMAF value are weighted equally.
+             */
+            public double getEquivalence() {
+                return this.equivalence;
+            }
+
+            /**
+             * @param totalPlays Total plays of the child node
+             * @return Weight of the AMAF value for a child with totalPlays plays.
+             */
+            public double getWeight(double totalPlays) {
+                return Math.sqrt(this.getEquivalence() / (3 * totalPlays + this.getEquivalence()));
+            }
+        }
+
+        /**
+         * Exploration constants for PUCT selection.
+         * Larger than would be used with UCB1, since the exploration term is scaled down by the prior of the move.
+         */
         class ExplorationCoefficient {
+            final private double mrXCoefficient;
+            final private double detectiveCoefficient;
+
+            public ExplorationCoefficient() {
+                this(1.0, 3.0);
+            }
+
+            /**
+             * @param mrXCoefficient Exploration constant used when Mr X is choosing a move
+             * @param detectiveCoefficient Exploration constant used when a detective is choosing a move
+             */
+            public ExplorationCoefficient(double mrXCoefficient, double detectiveCoefficient) {
+                this.mrXCoefficient = mrXCoefficient;
+                this.detectiveCoefficient = detectiveCoefficient;
+            }
+
             public double getMrXCoefficient() {
-                return 0.2;
+                return this.mrXCoefficient;
             }
 
             public double getDetectiveCoefficient() {
-                return 2.0;
+                return this.detectiveCoefficient;
             }
         }
 
@@ -299,26 +709,30 @@ public interface Heuristics {
                      ImmutableMap.Builder<MinDistance, Category> builder = ImmutableMap.builder();
 
 //                   Buffers the characters in the file for efficient reading
-                     BufferedReader bufferedReader = new BufferedReader(new FileReader(file));
-
-//                   Skip header
-                     bufferedReader.readLine();
-
-                     String input = bufferedReader.readLine();
-                     while(input != null) {
-//                      Splits the string every comma
-                        String[] fields = input.split(",");
-
-//                       Must have three arguments: Category, total hits, and total possible
-                         if (fields.length != 3) throw new IOException("File in invalid format");
-                         builder.put(
-                                 MinDistance.valueOf(fields[0]),
-
-//                               Construct a category object with given total hits and total possible
-                                 new Category(Integer.parseInt(fields[1]), Integer.parseInt(fields[2]))
-                         );
-
-                         input = bufferedReader.readLine();
+                     try (BufferedReader bufferedReader = new BufferedReader(new FileReader(file))) {
+//                       Skip header
+                         bufferedReader.readLine();
+
+                         String input = bufferedReader.readLine();
+                         while (input != null) {
+//                           Splits the string every comma
+                             String[] fields = input.split(",");
+
+//                           Must have three arguments: Category, total hits, and total possible
+                             if (fields.length != 3) throw new IOException("File in invalid format");
+                             try {
+                                 builder.put(
+                                         MinDistance.valueOf(fields[0]),
+
+//                                       Construct a category object with given total hits and total possible
+                                         new Category(Long.parseLong(fields[1]), Long.parseLong(fields[2]))
+                                 );
+                             } catch (IllegalArgumentException e) {
+                                 throw new IOException("File in invalid format");
+                             }
+
+                             input = bufferedReader.readLine();
+                         }
                      }
 
                      return new MinDistanceData(builder.build());
@@ -346,7 +760,7 @@ public interface Heuristics {
                          try {
                              builder.put(
                                  MinDistance.valueOf(fields[0]),
-                                 new Category(Integer.parseInt(fields[1]), Integer.parseInt(fields[2]))
+                                 new Category(Long.parseLong(fields[1]), Long.parseLong(fields[2]))
                             );
                          } catch (NumberFormatException e) {
                              throw new IOException("File not in correct format.");
@@ -356,11 +770,42 @@ public interface Heuristics {
                      return new MinDistanceData(builder.build());
                  }
 
+                 /**
+                  * Writes the data in the format read by {@link #buildFromContinuedFile(File)}.
+                  * The data is written to a temporary file which then replaces the file, so the file is
+                  * never left partly written.
+                  * Games may still be adding to the counters, which are read without pausing them. Each
+                  * category's total possible is read before its total hits, and the hits are clamped to
+                  * the possible, so hits added after the possible was read can't make the hit probability
+                  * more than one.
+                  * @param file File to write to
+                  * @throws IOException if the file can't be written or replaced.
+                  */
+                 public void writeToFile (File file) throws IOException {
+                     StringBuilder output = new StringBuilder("category,total-hits,total-possible\n");
+                     for (MinDistance category : MinDistance.values()) {
+                         long totalPossible = this.getTotalPossible(category);
+                         long totalHits = Math.min(this.getTotalHits(category), totalPossible);
+                         output.append(category.name()).append(",");
+                         output.append(totalHits).append(",");
+                         output.append(totalPossible).append("\n");
+                     }
+
+                     Path target = file.toPath().toAbsolutePath();
+                     Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+                     try {
+                         Files.writeString(temporary, output, StandardCharsets.UTF_8);
+                         Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                     } finally {
+                         Files.deleteIfExists(temporary);
+                     }
+                 }
+
                  /**
                   * @param category Category to get total hits for
                   * @return Total hits for category
                   */
-                 public int getTotalHits(MinDistance category) {
+                 public long getTotalHits(MinDistance category) {
                      return this.data.get(category).getTotalHits();
                  }
 
@@ -368,7 +813,7 @@ public interface Heuristics {
                   * @param category Category to get total possible for
                   * @return Total possible for category
                   */
-                 public int getTotalPossible(MinDistance category) {
+                 public long getTotalPossible(MinDistance category) {
                      return this.data.get(category).getTotalPossible();
                  }
 
@@ -382,7 +827,7 @@ public interface Heuristics {
                  }
 
                  /**
-                  * Adds a hit for a category.
+                  * Adds a hit for a category. Can be called from several threads at once.
                   * @param category Category to add hit for
                   */
                  public void addHit(MinDistance category) {
@@ -390,7 +835,7 @@ public interface Heuristics {
                  }
 
                  /**
-                  *  Adds a miss for a category
+                  *  Adds a miss for a category. Can be called from several threads at once.
                   * @param  category Category to add a miss for
                   *  */
                  public void addMiss(MinDistance category) {
@@ -399,40 +844,39 @@ public interface Heuristics {
 
                  /**
                   * Specific category for a classification.
+                  * Counters are striped across threads, so that concurrent games can add to them without
+                  * contending on a lock.
                   */
                  static private class Category {
 
                      //Total correct locations of Mr X
-                     private int totalHits;
+                     private final LongAdder totalHits = new LongAdder();
 
                      //Total number of times it was possible for it to be a location of Mr X
-                     private int totalPossible;
+                     private final LongAdder totalPossible = new LongAdder();
 
                      //Default constructor
-                     public Category() {
-                         this.totalHits = 0;
-                         this.totalPossible = 0;
-                     }
+                     public Category() {}
 
-                     public Category(int totalHits, int totalPossible) {
-                         this.totalHits = totalHits;
-                         this.totalPossible = totalPossible;
+                     public Category(long totalHits, long totalPossible) {
+                         this.totalHits.add(totalHits);
+                         this.totalPossible.add(totalPossible);
                      }
 
-                     public int getTotalHits() {
-                         return this.totalHits;
+                     public long getTotalHits() {
+                         return this.totalHits.sum();
                      }
 
-                     public int getTotalPossible() {
-                         return this.totalPossible;
+                     public long getTotalPossible() {
+                         return this.totalPossible.sum();
                      }
 
                      public void addHit() {
-                         this.totalHits++;
+                         this.totalHits.increment();
                      }
 
                      public void addMiss() {
-                         this.totalPossible++;
+                         this.totalPossible.increment();
                      }
                  }
              }
@@ -0,0 +1,37 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.util.Random;
+
+/**
+ * Fixed number of MCTS iterations per move, used instead of the time limit when simulating games.
+ * The search runs on a single thread with a seeded random number generator, so a game played with
+ * the same budget and seed always has the same moves, however loaded the machine is.
+ */
+public class IterationBudget {
+    final private int iterations;
+    final private Random random;
+
+    /**
+     * @param iterations Number of iterations to run for each move
+     * @param seed Seed for every random choice made by the AI
+     * @throws IllegalArgumentException if iterations is less than 1
+     */
+    public IterationBudget (int iterations, long seed) {
+        if (iterations < 1) throw new IllegalArgumentException("Iteration budget must be positive");
+
+        this.iterations = iterations;
+        this.random = new Random(seed);
+    }
+
+    public int getIterations () {
+        return this.iterations;
+    }
+
+    /**
+     * @return Random number generator shared by every search using the budget. Must only be used
+     * from one thread at a time.
+     */
+    public Random getRandom () {
+        return this.random;
+    }
+}
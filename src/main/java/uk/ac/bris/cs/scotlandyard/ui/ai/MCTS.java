@@ -3,6 +3,8 @@ package uk.ac.bris.cs.scotlandyard.ui.ai;
 import io.atlassian.fugue.Pair;
 import uk.ac.bris.cs.scotlandyard.model.Piece;
 
+import java.util.Random;
+
 /**
  * MCTS (Monte Carlo Tree Search) Algorithm
  * Formatting of the steps of the algorithm slightly based on:
@@ -11,13 +13,23 @@ import uk.ac.bris.cs.scotlandyard.model.Piece;
 public class MCTS extends Thread {
     final private Node mctsTree;
     final Heuristics.EGreedyPlayouts eGreedyPlayouts;
+    final private Random random;
 
     /**
      * @param mctsTree the mcts tree to apply the algorithm to
      * */
     public MCTS (Node mctsTree) {
+        this(mctsTree, new Random());
+    }
+
+    /**
+     * @param mctsTree the mcts tree to apply the algorithm to
+     * @param random random number generator used for the simulations
+     * */
+    public MCTS (Node mctsTree, Random random) {
         this.mctsTree = mctsTree;
-        this.eGreedyPlayouts = new Heuristics.EGreedyPlayouts();
+        this.eGreedyPlayouts = mctsTree.getConfiguration().getEGreedyPlayouts();
+        this.random = random;
     }
 
 //  Main component to execute the algorithm
@@ -26,30 +38,34 @@ public class MCTS extends Thread {
         Pair<Node, Boolean> nodeBooleanPair;
         Node node = this.mctsTree;
         Piece gameValue;
+        Node.PlayoutTrace playoutTrace = new Node.PlayoutTrace();
 //      Stores whether latest child was from selection or expansion.
         boolean selected = true;
 
 //      Selection Stage.
-//      Stops selecting when node is not fully expanded or game is already won.
-        while (selected && node.isNotGameOver()) {
+//      Stops selecting when node is not fully expanded or the result is already known.
+        while (selected && node.isNotGameOver() && !node.isSolved()) {
             nodeBooleanPair = node.expandOrSelect();
             node = nodeBooleanPair.left();
             selected = nodeBooleanPair.right();
         }
 
-//      Only run simulation if non-winning game state for node.
-        if (node.isNotGameOver()) {
+//      Only run simulation if the result of the node isn't already known.
+        if (node.isSolved()) {
+            gameValue = node.getProvenWinner().orElseThrow();
+        }
+//      Game over nodes are always solved, so the node must have a game state to simulate from.
+        else {
             gameValue = Node.simulateGame(
                     node.getGameState().orElseThrow(),
                     node.getPossibleLocations().orElseThrow(),
-                    this.eGreedyPlayouts
+                    this.eGreedyPlayouts,
+                    playoutTrace,
+                    this.random
             );
         }
-        else {
-            gameValue = Node.getGameWinner(node.getGameState().orElseThrow()).orElseThrow();
-        }
 
 //      Backpropagation Stage
-        node.backPropagation(gameValue);
+        node.backPropagation(gameValue, playoutTrace);
     }
 }
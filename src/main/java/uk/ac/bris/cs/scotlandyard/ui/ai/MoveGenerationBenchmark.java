@@ -0,0 +1,110 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import uk.ac.bris.cs.scotlandyard.model.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the time and memory taken to build game states, most of which is generating the
+ * available moves. States are built with Mr X to move, with and without double tickets, so that
+ * the cost of generating double moves can be seen.
+ */
+public class MoveGenerationBenchmark {
+    private static final int WARMUP_STATES = 20_000;
+
+    /**
+     * Helper function to main. Builds a state for each set of players.
+     * @return Total number of available moves, so that the work can't be optimised away.
+     */
+    private static long buildStates (AIGameStateFactory aiGameStateFactory,
+                                     GameSetup gameSetup,
+                                     List<Player> mrXs,
+                                     List<ImmutableList<Player>> detectives,
+                                     int states) {
+        long moves = 0;
+        for (int i = 0; i < states; i++) {
+            int game = i % mrXs.size();
+            moves += aiGameStateFactory.build(gameSetup, mrXs.get(game), detectives.get(game)).getAvailableMoves().size();
+        }
+        return moves;
+    }
+
+    /**
+     * Helper function to main. Prints the time and memory taken per state.
+     */
+    private static void report (String name,
+                                AIGameStateFactory aiGameStateFactory,
+                                GameSetup gameSetup,
+                                List<Player> mrXs,
+                                List<ImmutableList<Player>> detectives,
+                                int states) {
+        MoveGenerationBenchmark.buildStates(aiGameStateFactory, gameSetup, mrXs, detectives, WARMUP_STATES);
+
+        long startAllocatedBytes = GcMonitor.getAllocatedBytes();
+        long startTime = System.nanoTime();
+        long moves = MoveGenerationBenchmark.buildStates(aiGameStateFactory, gameSetup, mrXs, detectives, states);
+        long elapsedTime = System.nanoTime() - startTime;
+        long allocatedBytes = GcMonitor.getAllocatedBytes() - startAllocatedBytes;
+
+        System.out.printf("%s: %.2f us/state, %d bytes/state, %.1f moves/state%n",
+                name,
+                elapsedTime / 1e3 / states,
+                startAllocatedBytes >= 0 ? allocatedBytes / states : -1,
+                (double) moves / states);
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args Number of states to build for each measurement, 100000 if not given.
+     */
+    public static void main (String[] args) {
+        int states = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        GameSetup gameSetup;
+        try {
+            gameSetup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24MOVES);
+        } catch (IOException e) {
+            System.err.println("Couldn't read the game graph");
+            System.exit(1);
+            return;
+        }
+
+        Random random = new Random(0);
+        ImmutableMap<ScotlandYard.Ticket, Integer> noDoubleTickets = ImmutableMap.of(
+                ScotlandYard.Ticket.TAXI, 4,
+                ScotlandYard.Ticket.BUS, 3,
+                ScotlandYard.Ticket.UNDERGROUND, 3,
+                ScotlandYard.Ticket.DOUBLE, 0,
+                ScotlandYard.Ticket.SECRET, 5
+        );
+
+        List<Player> mrXs = new ArrayList<>();
+        List<Player> mrXsWithoutDouble = new ArrayList<>();
+        List<ImmutableList<Player>> detectives = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            ImmutableList<Integer> detectiveLocations = ScotlandYard.generateDetectiveLocations(random.nextInt(), 5);
+            int mrXLocation = ScotlandYard.generateMrXLocation(random.nextInt());
+
+            mrXs.add(new Player(Piece.MrX.MRX, ScotlandYard.defaultMrXTickets(), mrXLocation));
+            mrXsWithoutDouble.add(new Player(Piece.MrX.MRX, noDoubleTickets, mrXLocation));
+
+            ImmutableList.Builder<Player> players = ImmutableList.builder();
+            for (int j = 0; j < 5; j++) {
+                players.add(new Player(
+                        Piece.Detective.values()[j],
+                        ScotlandYard.defaultDetectiveTickets(),
+                        detectiveLocations.get(j)
+                ));
+            }
+            detectives.add(players.build());
+        }
+
+        AIGameStateFactory aiGameStateFactory = new AIGameStateFactory();
+        MoveGenerationBenchmark.report("Mr X with double tickets", aiGameStateFactory, gameSetup, mrXs, detectives, states);
+        MoveGenerationBenchmark.report("Mr X without double tickets", aiGameStateFactory, gameSetup, mrXsWithoutDouble, detectives, states);
+    }
+}
@@ -0,0 +1,131 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.MapMaker;
+import com.google.common.graph.ImmutableValueGraph;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Single moves from each location for each combination of tickets a player has, built once per
+ * graph so that move generation only has to filter out the locations occupied by detectives.
+ * The double ticket can't be used for a single move, so combinations are masks of the other
+ * {@value #TICKET_MASKS_BITS} tickets.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public class MoveTemplates {
+    public static final int TICKET_MASKS_BITS = 4;
+    private static final int TICKET_MASKS = 1 << TICKET_MASKS_BITS;
+
+//  Templates are only kept while the graph is in use. Graphs are compared by identity, since
+//  comparing them by value would compare every edge.
+    private static final ConcurrentMap<ImmutableValueGraph<Integer, ImmutableSet<ScotlandYard.Transport>>, MoveTemplates> templates =
+            new MapMaker().weakKeys().makeMap();
+
+    final private ImmutableValueGraph<Integer, ImmutableSet<ScotlandYard.Transport>> graph;
+    final private int locations;
+    final private Map<Piece, Move.SingleMove[][][]> pieceMoves = new ConcurrentHashMap<>();
+
+    private MoveTemplates (ImmutableValueGraph<Integer, ImmutableSet<ScotlandYard.Transport>> graph) {
+        this.graph = graph;
+        this.locations = graph.nodes().stream().mapToInt(Integer::intValue).max().orElse(0) + 1;
+    }
+
+    /**
+     * @param graph Graph of the game
+     * @return Templates for the graph, built the first time the graph is used.
+     */
+    public static MoveTemplates forGraph (ImmutableValueGraph<Integer, ImmutableSet<ScotlandYard.Transport>> graph) {
+        return templates.computeIfAbsent(graph, MoveTemplates::new);
+    }
+
+    /**
+     * @param ticket Ticket other than the double ticket
+     * @return Bit of the ticket in a ticket mask.
+     * @throws IllegalArgumentException if the ticket is the double ticket
+     */
+    public static int getTicketBit (ScotlandYard.Ticket ticket) {
+        return switch (ticket) {
+            case TAXI -> 1;
+            case BUS -> 1 << 1;
+            case UNDERGROUND -> 1 << 2;
+            case SECRET -> 1 << 3;
+            case DOUBLE -> throw new IllegalArgumentException("Double ticket can't be used for a single move");
+        };
+    }
+
+    /**
+     * @param tickets Number of each ticket a player has
+     * @return Mask of the tickets other than the double ticket which the player has at least one of.
+     */
+    public static int getTicketMask (Map<ScotlandYard.Ticket, Integer> tickets) {
+        int mask = 0;
+        for (Map.Entry<ScotlandYard.Ticket, Integer> ticket : tickets.entrySet()) {
+            if (ticket.getKey() != ScotlandYard.Ticket.DOUBLE && ticket.getValue() > 0) {
+                mask |= MoveTemplates.getTicketBit(ticket.getKey());
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Gets the single moves from a location, ignoring detectives. Moves are in the order of the
+     * adjacent locations in the graph, with the secret ticket before the other tickets, and contain
+     * no duplicates.
+     * @param piece Piece making the move
+     * @param source Location to move from
+     * @param ticketMask Mask of the tickets the piece has
+     * @return Shared array of moves, which must not be modified.
+     * @throws IllegalArgumentException if the location isn't in the graph
+     */
+    public Move.SingleMove[] getSingleMoves (Piece piece, int source, int ticketMask) {
+        if (source <= 0 || source >= this.locations) throw new IllegalArgumentException("Invalid location " + source);
+
+        return this.pieceMoves.computeIfAbsent(piece, this::buildPieceMoves)[source][ticketMask];
+    }
+
+    /**
+     * Helper function to getSingleMoves. Builds the moves of a piece for every location and mask.
+     */
+    private Move.SingleMove[][][] buildPieceMoves (Piece piece) {
+        Move.SingleMove[][][] moves = new Move.SingleMove[this.locations][TICKET_MASKS][];
+        for (int source : this.graph.nodes()) {
+            for (int ticketMask = 0; ticketMask < TICKET_MASKS; ticketMask++) {
+                moves[source][ticketMask] = this.buildSingleMoves(piece, source, ticketMask);
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Helper function to buildPieceMoves. Finds the moves in the same way as the game model.
+     */
+    private Move.SingleMove[] buildSingleMoves (Piece piece, int source, int ticketMask) {
+        Set<Move.SingleMove> moves = new LinkedHashSet<>();
+        boolean hasSecretTicket = (ticketMask & MoveTemplates.getTicketBit(ScotlandYard.Ticket.SECRET)) != 0;
+
+        for (int destination : this.graph.adjacentNodes(source)) {
+            if (hasSecretTicket) {
+                moves.add(new Move.SingleMove(piece, source, ScotlandYard.Ticket.SECRET, destination));
+            }
+
+            for (ScotlandYard.Transport t : Objects.requireNonNull(
+                    this.graph.edgeValueOrDefault(source, destination, ImmutableSet.of())
+            )) {
+                if ((ticketMask & MoveTemplates.getTicketBit(t.requiredTicket())) != 0) {
+                    moves.add(new Move.SingleMove(piece, source, t.requiredTicket(), destination));
+                }
+            }
+        }
+
+        return moves.toArray(new Move.SingleMove[0]);
+    }
+}
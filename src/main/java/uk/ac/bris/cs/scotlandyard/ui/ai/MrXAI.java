@@ -4,19 +4,43 @@ import io.atlassian.fugue.Pair;
 import uk.ac.bris.cs.scotlandyard.model.*;
 
 import javax.annotation.Nonnull;
-import java.util.concurrent.*;
+import java.util.concurrent.TimeUnit;
 
 public class MrXAI implements PlayerAI {
     private static final long BUFFER = 200;
     private final AIGameStateFactory aiGameStateFactory;
     private PossibleLocations possibleLocations;
     private final PossibleLocationsFactory possibleLocationsFactory;
-    private final ExecutorService executorService;
+    private final SearchExecutor searchExecutor;
+    private final SearchConfiguration configuration;
+    private final TimeManager timeManager;
+    private final Ponderer ponderer;
+    private long lastIterations = 0;
+//  Null when searching against the time limit.
+    private final IterationBudget iterationBudget;
 
-    public MrXAI (ExecutorService executorService) {
+    /**
+     * @param configuration Heuristics used by the search.
+     * */
+    public MrXAI (SearchExecutor searchExecutor, SearchConfiguration configuration) {
+        this(searchExecutor, configuration, null);
+    }
+
+    /**
+     * @param configuration Heuristics used by the search.
+     * @param iterationBudget Iterations to search for each move instead of the time limit, or null
+     *                        to use the time limit.
+     * */
+    public MrXAI (SearchExecutor searchExecutor,
+                  SearchConfiguration configuration,
+                  IterationBudget iterationBudget) {
+        this.iterationBudget = iterationBudget;
         this.aiGameStateFactory = new AIGameStateFactory();
         this.possibleLocationsFactory = new PossibleLocationsFactory();
-        this.executorService = executorService;
+        this.searchExecutor = searchExecutor;
+        this.configuration = configuration;
+        this.timeManager = new TimeManager(BUFFER);
+        this.ponderer = new Ponderer(searchExecutor);
     }
 
     /**
@@ -31,14 +55,45 @@ public class MrXAI implements PlayerAI {
         }
         this.possibleLocations = this.possibleLocations.updateLocations(board);
 
-        AIGameState gameState = this.aiGameStateFactory.buildMrXGameState(board);
+//      Continues from the tree searched while the detectives were moving if they made moves in it.
+        Pair<Node, AIGameState> promoted = this.ponderer
+                .promote(board, this.possibleLocations)
+                .orElseGet(() -> {
+                    AIGameState newGameState = this.aiGameStateFactory.buildMrXGameState(board);
+                    return new Pair<>(
+                            PlayerAI.buildTree(newGameState, this.possibleLocations, this.configuration),
+                            newGameState
+                    );
+                });
+        Node mctsTree = promoted.left();
+        AIGameState gameState = promoted.right();
+
+        double previousPlays = mctsTree.getTotalPlays();
+        Move bestMove;
+        if (this.iterationBudget == null) {
+            bestMove = PlayerAI.runMCTS(
+                    mctsTree,
+                    this.timeManager.getTimeForMove(gameState, possibleLocations, timeoutPair),
+                    this.searchExecutor
+            );
+        } else {
+            bestMove = PlayerAI.runMCTS(mctsTree, this.iterationBudget);
+        }
+
+        this.lastIterations = (long) (mctsTree.getTotalPlays() - previousPlays);
+
+//      Not pondered with an iteration budget, since the result would depend on the timing of the game.
+        if (this.iterationBudget == null) this.ponderer.start(mctsTree, bestMove, gameState);
+        return bestMove;
+    }
+
+    @Override
+    public long getLastIterations () {
+        return this.lastIterations;
+    }
 
-        return PlayerAI.runMCTSForGameState(
-                gameState,
-                possibleLocations,
-                timeoutPair,
-                BUFFER,
-                this.executorService
-        );
+    @Override
+    public void stopPondering () {
+        this.ponderer.stop();
     }
 }
@@ -1,7 +1,9 @@
 package uk.ac.bris.cs.scotlandyard.ui.ai;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.Properties;
 import java.util.concurrent.*;
 
 import javax.annotation.Nonnull;
@@ -12,18 +14,114 @@ import uk.ac.bris.cs.scotlandyard.model.Board;
 import uk.ac.bris.cs.scotlandyard.model.Move;
 
 public class MyAi implements Ai {
+	public static final String DATA_SET_PROPERTY = "scotlandyard.ai.dataset";
+
+//	Loaded once for every AI searching against the time limit (see getSystemMovePriors).
+	private static Heuristics.MovePriors systemMovePriors;
+
 	private MrXAI mrXAI;
 	private DetectiveAI detectiveAI;
+	private SearchExecutor searchExecutor;
+//	Null when searching against the time limit.
+	private final IterationBudget iterationBudget;
+//	Null when the parameters are read from the system properties.
+	private final Properties profile;
+	private final Heuristics.MovePriors movePriors;
+	private long lastIterations = 0;
+
+	/**
+	 * Searches for as long as the time limit of each move allows. Mr X's moves are weighted by the
+	 * data set named by the {@value #DATA_SET_PROPERTY} system property if it is set.
+	 */
+	public MyAi() {
+		this(null, null, MyAi.getSystemMovePriors());
+	}
+
+	/**
+	 * Searches for a fixed number of iterations each move, ignoring the time limit, so that games
+	 * can be reproduced from the seed of the budget.
+	 * @param iterationBudget Iterations to search for and seed to use
+	 */
+	public MyAi(IterationBudget iterationBudget) {
+		this(iterationBudget, null);
+	}
+
+	/**
+	 * Uses distance priors only, so that simulated games don't depend on a data set which may be
+	 * written to while they are played.
+	 * @param iterationBudget Iterations to search for and seed to use, or null to use the time limit
+	 * @param profile Parameters of the search (see {@link SearchConfiguration}), or null to read them
+	 *                from the system properties
+	 */
+	public MyAi(IterationBudget iterationBudget, Properties profile) {
+		this(iterationBudget, profile, new Heuristics.MovePriors());
+	}
+
+	/**
+	 * @param iterationBudget Iterations to search for and seed to use, or null to use the time limit
+	 * @param profile Parameters of the search (see {@link SearchConfiguration}), or null to read them
+	 *                from the system properties
+	 * @param movePriors Priors to order moves with. Their temperature and double move penalty are
+	 *                   replaced if set in the parameters.
+	 */
+	public MyAi(IterationBudget iterationBudget, Properties profile, Heuristics.MovePriors movePriors) {
+		this.iterationBudget = iterationBudget;
+		this.profile = profile;
+		this.movePriors = movePriors;
+	}
+
+	/**
+	 * Helper function to the constructor. Reads the data set named by the {@value #DATA_SET_PROPERTY}
+	 * system property the first time it is called, rather than once for every game.
+	 * @return Move priors weighted by the data set if it is set and can be read.
+	 */
+	private static synchronized Heuristics.MovePriors getSystemMovePriors() {
+		if (MyAi.systemMovePriors == null) {
+			String dataSetFile = System.getProperty(DATA_SET_PROPERTY);
+			MyAi.systemMovePriors = dataSetFile == null ?
+					new Heuristics.MovePriors() :
+					Heuristics.MovePriors.buildFromDataSet(dataSetFile);
+		}
+		return MyAi.systemMovePriors;
+	}
+
+	/**
+	 * Helper function to onStart. Reads the profile named by the
+	 * {@value SearchConfiguration#PROFILE_PROPERTY} system property if set, then any parameters
+	 * set as system properties, which take precedence over the profile.
+	 */
+	private static Properties getSystemParameters() {
+		Properties parameters = new Properties();
+		String profileFile = System.getProperty(SearchConfiguration.PROFILE_PROPERTY);
+		if (profileFile != null) {
+			try {
+				parameters.putAll(SearchConfiguration.loadProfile(new File(profileFile)));
+			} catch (IOException e) {
+				System.err.println("Cannot read " + profileFile + ", ignoring the profile.");
+			}
+		}
+		parameters.putAll(System.getProperties());
+		return parameters;
+	}
 
 	public void onStart() {
-		ExecutorService executorService = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors());
+//		Shares the search threads with any other AIs running in the JVM. Released in onTerminate.
+		this.searchExecutor = SearchExecutor.acquire();
 
-//      Ensures that executor service closed when the program is shut down.
-//      (based on https://stackoverflow.com/questions/5824049/running-a-method-when-closing-the-program)
-        Runtime.getRuntime().addShutdownHook(new Thread(executorService::shutdownNow));
+//		Parameters of the heuristics can be set with a profile or system properties (see SearchConfiguration).
+//		An invalid parameter only replaces that parameter with its default.
+		SearchConfiguration configuration = SearchConfiguration.fromPropertiesOrDefaults(
+				this.profile == null ? MyAi.getSystemParameters() : this.profile,
+				this.movePriors
+		);
 
-		this.mrXAI = new MrXAI(executorService);
-		this.detectiveAI = new DetectiveAI(executorService, DistancesSingleton.getInstance());
+		this.mrXAI = new MrXAI(this.searchExecutor, configuration, this.iterationBudget);
+		this.detectiveAI = new DetectiveAI(
+				this.searchExecutor,
+				DistancesSingleton.getInstance(),
+				configuration,
+				this.iterationBudget
+		);
 	}
 
 	/**
@@ -37,23 +135,50 @@ public class MyAi implements Ai {
 	@Nonnull @Override
 	public Move pickMove(@Nonnull Board board, Pair<Long, TimeUnit> timeoutPair) {
 		List<Move> availableMoves = board.getAvailableMoves().asList();
-		Move bestMove;
+//		Only measured when reported, since reading every thread's allocations takes time from the move.
+		GcMonitor gcMonitor = GcMonitor.isReportEnabled() ? new GcMonitor() : null;
+		PlayerAI playerAI;
 
 //		Create game state from board
 //		Check if current player is MrX.
+//		The other side's search is stopped so that both sides' searches don't compete for processors.
 		if (availableMoves.get(0).commencedBy().isMrX()) {
-			bestMove = mrXAI.generateBestMove(board, timeoutPair);
+			detectiveAI.stopPondering();
+			playerAI = mrXAI;
 		}
 //		Run detectives' turn
 		else {
-			bestMove = detectiveAI.generateBestMove(board, timeoutPair);
+			mrXAI.stopPondering();
+			playerAI = detectiveAI;
 		}
+		Move bestMove = playerAI.generateBestMove(board, timeoutPair);
+		this.lastIterations = playerAI.getLastIterations();
 
-//		Calls garbage collector for more aggressive garbage collection
-		System.gc();
+//		Old trees are detached from the kept subtree, so they are left to the collector rather than
+//		forcing a full collection here, which would pause outside of the search's time limit.
+		if (gcMonitor != null) {
+			System.out.println(gcMonitor.getReport(
+					this.lastIterations,
+					timeoutPair.right().toMillis(timeoutPair.left())
+			));
+		}
 
 		return bestMove;
 	}
 
-	public void onTerminate() {}
+	/**
+	 * @return Number of MCTS iterations run to pick the last move.
+	 */
+	public long getLastIterations() {
+		return this.lastIterations;
+	}
+
+	public void onTerminate() {
+		if (this.searchExecutor == null) return;
+
+		this.mrXAI.stopPondering();
+		this.detectiveAI.stopPondering();
+		this.searchExecutor.release();
+		this.searchExecutor = null;
+	}
 }
@@ -12,6 +12,8 @@ import java.util.*;
  * Stores the current game state, as well as the recorded plays and wins on a state.
  * Wins are from perspective of parent, unless node is root node, where wins are from
  * perspective of itself.
+ * Nodes whose result is known regardless of the moves played (proven wins or losses) are
+ * marked as solved, so that the search doesn't waste iterations re-proving them.
  * Use of Node class to store all MCTS logic partially inspired from:
  * <a href="https://www.youtube.com/watch?v=wuSQpLinRB4">https://www.youtube.com/watch?v=wuSQpLinRB4</a>
  */
@@ -20,101 +22,110 @@ public class Node {
     private Move previousMove = null;
     final private Piece piece; // Either MrX or a Detective
     final private List<Move> remainingMoves; // Pre-filtered
+    private double[] remainingPriors; // Priors of remainingMoves, in the same order
+    private double prior = 1.0; // Prior probability of previousMove
+    private int destination; // Destination of previousMove, used to look up AMAF statistics
     private double totalPlays;
     private double totalValue;
 
 //  Used to reduce emphasis on nodes traversed by other threads.
     private int virtualLoss;
 
+//  All-moves-as-first statistics for the moves of this node's piece, indexed by destination.
+//  Only allocated once a back-propagation passes through the node after it has children.
+    private int[] amafPlays;
+    private float[] amafValues;
+
     final private List<Node> children;
-    final private Node parent;
-    final private Node root;
+    private Node parent;
     private PossibleLocations possibleLocations;
-    final private Heuristics.MoveFiltering moveFilter;
-    final private Heuristics.CoalitionReduction coalitionReduction;
-    final private Heuristics.ExplorationCoefficient explorationCoefficient;
+//  Shared by every node in the tree.
+    final private SearchConfiguration configuration;
     final private boolean notGameOver;
 
+//  Winner of the game from this node with perfect play, or null if not proven.
+    private volatile Piece provenWinner;
+
     /**
      * Helper function to Constructors
      * @param gameState Current game state
-     * @return Filtered list of moves possible from current game state
+     * @param possibleLocations Possible locations of Mr X, used to calculate the priors
+     * @return Filtered list of moves possible from current game state, ordered so that the most
+     * promising move is last. Priors for the moves are stored in remainingPriors.
      * */
-    private List<Move> applyMoveFilterHeuristic(AIGameState gameState){
-        return new ArrayList<>(gameState
+    private List<Move> applyMoveFilterHeuristic(AIGameState gameState, PossibleLocations possibleLocations){
+        List<Move> moves = new ArrayList<>(gameState
                 .getAvailableMoves()
                 .asList()
                 .stream()
 //                .filter(m -> m.commencedBy().equals(this.piece))
-                .filter(m -> this.moveFilter.checkMove(m, gameState))
+                .filter(m -> this.configuration.getMoveFilter().checkMove(m, gameState))
                 .toList());
+
+        this.remainingPriors = this.configuration.getMovePriors().orderMovesAndCalculatePriors(moves, gameState, possibleLocations);
+        return moves;
     }
 
     /**
      * Constructor for the root node
      * @param gameState Current game state
-     * @param moveFilter move filtering heuristic
-     * @param coalitionReduction coalitionReduction heuristic
+     * @param configuration heuristics used by the search, shared with every node of the tree
      * */
     public Node (AIGameState gameState,
                  PossibleLocations possibleLocations,
-                 Heuristics.MoveFiltering moveFilter,
-                 Heuristics.CoalitionReduction coalitionReduction,
-                 Heuristics.ExplorationCoefficient explorationCoefficient) {
+                 SearchConfiguration configuration) {
         this.gameState = gameState;
         this.piece = gameState.getAvailableMoves().asList().get(0).commencedBy();
-        this.root = this;
         this.parent = null;
-        this.moveFilter = moveFilter;
         this.possibleLocations = possibleLocations;
-        this.coalitionReduction = coalitionReduction;
-        this.explorationCoefficient = explorationCoefficient;
+        this.configuration = configuration;
 
         //Application of the move filtering heuristic
-        this.remainingMoves = applyMoveFilterHeuristic(gameState);
+        this.remainingMoves = applyMoveFilterHeuristic(gameState, possibleLocations);
 
         this.totalValue = 0;
         this.totalPlays = 0;
         this.children = new ArrayList<>(this.remainingMoves.size());
         this.notGameOver = this.gameState.getWinner().isEmpty();
+        this.provenWinner = Node.getGameWinner(gameState).orElse(null);
     }
 
 
     /**
-     * Constructor for non-root nodes
+     * Constructor for non-root nodes. The node uses the same configuration as its parent.
      * @param gameState Current game state for node.
-     * @param root Root of tree
      * @param parent Parent of this node
      * @param previousMove Move that would traverse from the parent node to this node
      * */
     public Node (AIGameState gameState,
-                 Node root,
                  Node parent,
                  Move previousMove,
-                 PossibleLocations possibleLocations,
-                 Heuristics.MoveFiltering moveFilter,
-                 Heuristics.CoalitionReduction coalitionReduction,
-                 Heuristics.ExplorationCoefficient explorationCoefficient) {
+                 PossibleLocations possibleLocations) {
 
         this.gameState = gameState;
-        this.root = root;
         this.parent = parent;
         this.previousMove = previousMove;
         this.possibleLocations = possibleLocations;
-        this.moveFilter = moveFilter;
-        this.coalitionReduction = coalitionReduction;
-        this.explorationCoefficient = explorationCoefficient;
+        this.configuration = parent.configuration;
 
 //      Win state reached (Can't expand anymore)
         if (!gameState.getWinner().isEmpty()) this.piece = parent.piece;
         else this.piece = gameState.getAvailableMoves().asList().get(0).commencedBy();
 
-        this.remainingMoves = applyMoveFilterHeuristic(gameState);
+        this.remainingMoves = applyMoveFilterHeuristic(gameState, possibleLocations);
         this.children = new ArrayList<>(this.remainingMoves.size());
 
         this.totalValue = 0.0;
         this.totalPlays = 0.0;
         this.notGameOver = this.gameState.getWinner().isEmpty();
+        this.provenWinner = Node.getGameWinner(gameState).orElse(null);
+    }
+
+    /**
+     * @return Heuristics used by the search of this node's tree.
+     */
+    public SearchConfiguration getConfiguration () {
+        return this.configuration;
     }
 
     public Optional<AIGameState> getGameState () {
@@ -137,11 +148,49 @@ public class Node {
         return this.totalPlays;
     }
 
+    /**
+     * @return Prior probability of the move which created this node.
+     */
+    public double getPrior () {
+        return this.prior;
+    }
+
+    /**
+     * @param destination Destination of a move made by this node's piece
+     * @return Number of all-moves-as-first plays recorded for the destination.
+     */
+    public synchronized int getAmafPlays (int destination) {
+        return this.amafPlays == null ? 0 : this.amafPlays[destination];
+    }
+
     public int getVirtualLoss () {
         return this.virtualLoss;
     }
 
-    public Node getParent (){ return this.parent; }
+    public synchronized Node getParent (){ return this.parent; }
+
+    /**
+     * Removes the node from its parent so that it can be used as the root of a new search, and so
+     * that the rest of the old tree can be garbage collected.
+     * Must not be called while the tree is being searched.
+     */
+    public synchronized void detach () {
+        this.parent = null;
+    }
+
+    /**
+     * @return true if the result of the game from this node has been proven.
+     */
+    public boolean isSolved () {
+        return this.provenWinner != null;
+    }
+
+    /**
+     * @return Winning piece with perfect play if the node is solved, otherwise empty.
+     */
+    public Optional<Piece> getProvenWinner () {
+        return Optional.ofNullable(this.provenWinner);
+    }
 
     /**
      * @return Current state of possible locations for game state.
@@ -150,8 +199,19 @@ public class Node {
         return Optional.ofNullable(this.possibleLocations);
     }
 
+    /**
+     * @param piece1 First piece to compare
+     * @param piece2 Second piece to compare
+     * @return true if both pieces are Mr X or both pieces are detectives.
+     */
+    private static boolean isSameSide (Piece piece1, Piece piece2) {
+        return piece1.isMrX() == piece2.isMrX();
+    }
+
     /**
      * Gets the child with the most visits, meaning that the child is the most promising.
+     * A child which is a proven win is returned immediately, and proven losses are only
+     * returned if every child is a proven loss.
      * @return Child with the most visits.
      * @throws IllegalStateException if node has no children
      * */
@@ -159,11 +219,15 @@ public class Node {
     public synchronized Node getBestChild () {
         if (this.children.isEmpty()) throw new IllegalStateException("Cannot get best child of leaf node");
 
-        // Post conditions will ensure score > -Infinity and bestChild will exist
+//      Only kept if every child is a proven loss.
         double bestScore = Double.NEGATIVE_INFINITY;
         Node bestChild = this.children.get(0);
 
         for (Node child : this.children) {
+            Piece childWinner = child.provenWinner;
+            if (childWinner != null && isSameSide(childWinner, this.piece)) return child;
+            if (childWinner != null) continue;
+
             double currentScore = child.getTotalPlays();
             if (currentScore > bestScore) {
                 bestScore = currentScore;
@@ -174,6 +238,64 @@ public class Node {
         return bestChild;
     }
 
+    /**
+     * @return true if a child has been added to the node.
+     */
+    public synchronized boolean hasChildren () {
+        return !this.children.isEmpty();
+    }
+
+    /**
+     * @return The only move that can be made from this node, if there is exactly one move after
+     * filtering and the node hasn't been expanded.
+     */
+    public synchronized Optional<Move> getForcedMove () {
+        if (this.children.isEmpty() && this.remainingMoves.size() == 1) {
+            return Optional.of(this.remainingMoves.get(0));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @param move Move made from this node
+     * @return The child reached by the move, if it has been added to the tree.
+     */
+    public synchronized Optional<Node> getChild (Move move) {
+        for (Node child : this.children) {
+            if (child.previousMove.equals(move)) return Optional.of(child);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Checks if the best child can't change with more iterations, either because a child is a proven
+     * win, or because the most visited child can't be overtaken in the remaining plays.
+     * @param remainingPlays Number of plays expected before the search ends
+     * @return true if the result of {@link #getBestChild()} is already decided.
+     */
+    public synchronized boolean isBestChildDecided (double remainingPlays) {
+        if (this.children.isEmpty()) return false;
+
+        double mostPlays = 0;
+        double secondMostPlays = 0;
+        for (Node child : this.children) {
+            Piece childWinner = child.provenWinner;
+            if (childWinner != null && isSameSide(childWinner, this.piece)) return true;
+//          Proven losses are never chosen by getBestChild, so they don't count towards the gap.
+            if (childWinner != null) continue;
+
+            double plays = child.getTotalPlays();
+            if (plays > mostPlays) {
+                secondMostPlays = mostPlays;
+                mostPlays = plays;
+            } else if (plays > secondMostPlays) {
+                secondMostPlays = plays;
+            }
+        }
+
+        return mostPlays - secondMostPlays > remainingPlays;
+    }
+
     /**
      * Either expands and adds a child, or selects the best child, depending on if the node is fully
      * expanded.
@@ -182,7 +304,9 @@ public class Node {
     public synchronized Pair<Node, Boolean> expandOrSelect() {
 //      Adds to virtual loss so that other threads visit different nodes.
         this.virtualLoss ++;
-        if (this.isFullyExpanded()) {
+
+//      Widens past the limit if every child has already been solved, since they can't be improved on.
+        if (this.isFullyExpanded() && !(this.allChildrenSolved() && !this.remainingMoves.isEmpty())) {
             return new Pair<>(this.selectChild(), true);
         }
         else {
@@ -190,13 +314,30 @@ public class Node {
         }
     }
 
+    /**
+     * @return true if every child added so far has been solved.
+     */
+    private boolean allChildrenSolved () {
+        for (Node child : this.children) {
+            if (!child.isSolved()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the node can't currently be expanded, either because there are no moves left to add or
+     * because progressive widening doesn't allow any more children for the current number of visits.
+     * @return true if a child should be selected rather than expanded.
+     */
     public boolean isFullyExpanded () {
-//      Checks if no available moves can be added and if there are children added.
-        return this.remainingMoves.size() == 0 && this.children.size() > 0;
+        if (this.children.isEmpty()) return false;
+
+        return this.remainingMoves.isEmpty() ||
+                this.children.size() >= this.configuration.getProgressiveWidening().getMaxChildren(this.totalPlays);
     }
 
     /**
-     * Expansion stage of MCTS algorithm. Selects a random node from remaining moves.
+     * Expansion stage of MCTS algorithm. Selects the most promising move from remaining moves.
      *
      * @return a new Node to add to the data structure (tree)
      * @throws IllegalStateException if this function tries to expand on a fully expanded node
@@ -204,47 +345,49 @@ public class Node {
     private Node expandNode () {
         if (remainingMoves.isEmpty()) throw new IllegalStateException("Cannot call expandNode on fully expanded node.");
 
-        Move nextMove = remainingMoves.get(new Random().nextInt(remainingMoves.size()));
-        remainingMoves.remove(nextMove);
+//      Moves are ordered so that the most promising move is last.
+        int index = remainingMoves.size() - 1;
+        Move nextMove = remainingMoves.remove(index);
 
         AIGameState newGameState = this.gameState.advance(nextMove);
         PossibleLocations newPossibleLocations = this.possibleLocations.updateLocations(newGameState);
 
         Node newNode = new Node(
                 newGameState,
-                this.root,
                 this,
                 nextMove,
-                newPossibleLocations,
-                this.moveFilter,
-                this.coalitionReduction,
-                this.explorationCoefficient
+                newPossibleLocations
         );
+        newNode.prior = this.remainingPriors[index];
+        newNode.destination = nextMove.accept(new MoveVisitors.DestinationVisitor());
         this.children.add(newNode);
 
 //      Culls unnecessary data from node to reduce memory usage.
         if (remainingMoves.isEmpty()) {
             this.gameState = null;
             this.possibleLocations = null;
+            this.remainingPriors = null;
         }
 
         return newNode;
     }
 
     /**
-     * Helper function to selectChild. Calculate the Upper Confidence Bound for the node.
+     * Helper function to selectChild. Calculate the PUCT score for the node.
      * This is used to focus on nodes which are more promising and avoid less promising
-     * nodes.
+     * nodes. Exploration is weighted by the prior of the move, so moves which the heuristics
+     * consider promising are explored first.
      *
-     * @param childNode childNode to evaluate UCB on
-     * @return Evaluation of the UCB1 equation of the child node
+     * @param childNode childNode to evaluate PUCT on
+     * @return Evaluation of the PUCT equation of the child node
      * @throws IllegalArgumentException If child is not defined
      * @throws IllegalArgumentException If the childNode given as parameter is not the child of the node.
      * */
     private double calculateUCB (Node childNode) {
+        Heuristics.ExplorationCoefficient explorationCoefficient = this.configuration.getExplorationCoefficient();
         double EXPLORATION_VALUE = this.piece.isMrX() ?
-                this.explorationCoefficient.getMrXCoefficient() :
-                this.explorationCoefficient.getDetectiveCoefficient();
+                explorationCoefficient.getMrXCoefficient() :
+                explorationCoefficient.getDetectiveCoefficient();
 
         Objects.requireNonNull(childNode, "Child node not defined");
 
@@ -261,29 +404,37 @@ public class Node {
             avgScore = (childNode.getTotalValue() - childNode.virtualLoss) / childNode.getTotalPlays();
         }
 
+//      Blends in the all-moves-as-first value, trusting it less as the child gains its own plays.
+        if (this.configuration.getRave().isEnabled() && this.amafPlays != null && this.amafPlays[childNode.destination] > 0) {
+            double amafScore = this.amafValues[childNode.destination] / this.amafPlays[childNode.destination];
+            double beta = this.configuration.getRave().getWeight(childNode.getTotalPlays());
+            avgScore = (1 - beta) * avgScore + beta * amafScore;
+        }
+
         double explorationFactor =
-                EXPLORATION_VALUE * (Math.sqrt(
-                        Math.log(this.getTotalPlays())
-                                / childNode.getTotalPlays()
-                ));
+                EXPLORATION_VALUE * childNode.prior * Math.sqrt(this.getTotalPlays())
+                        / (1 + childNode.getTotalPlays());
 
         return avgScore + explorationFactor;
     }
 
 
     /**
-     * Select child based on the best UCB score
+     * Select child based on the best PUCT score. Solved children are skipped unless every
+     * child is solved.
      * @throws IllegalStateException node has no children
      * */
     private Node selectChild () {
         if (this.children.isEmpty())
             throw new IllegalStateException("Cannot select child as no children exist");
 
-//      This is safe since it will always be overwritten in the for loop.
-        Node bestChild = null;
+//      Only used if every child has been solved.
+        Node bestChild = this.children.get(0);
         double bestScore = Double.NEGATIVE_INFINITY;
 
         for (Node child : this.children){
+            if (child.isSolved()) continue;
+
             double currentUCB = this.calculateUCB(child);
             if (bestScore < currentUCB) {
                 bestScore = currentUCB;
@@ -325,6 +476,44 @@ public class Node {
             AIGameState gameState,
             PossibleLocations possibleLocations,
             Heuristics.EGreedyPlayouts eGreedyPlayouts) {
+        return Node.simulateGame(gameState, possibleLocations, eGreedyPlayouts, new PlayoutTrace());
+    }
+
+    /**
+     * Simulates a game from the current game state, recording the moves made.
+     *
+     * @param gameState The current game state from a Node.
+     * @param possibleLocations The current Set of possible locations for Mr X.
+     *                          Used for E-Greedy Playouts.
+     * @param eGreedyPlayouts A EGreedyPlayouts class to define how moves should be picked.
+     * @param playoutTrace Trace which all moves in the simulation are added to.
+     * @return Value of simulated game (winning piece)
+     */
+    public static Piece simulateGame (
+            AIGameState gameState,
+            PossibleLocations possibleLocations,
+            Heuristics.EGreedyPlayouts eGreedyPlayouts,
+            PlayoutTrace playoutTrace) {
+        return Node.simulateGame(gameState, possibleLocations, eGreedyPlayouts, playoutTrace, new Random());
+    }
+
+    /**
+     * Simulates a game from the current game state, recording the moves made.
+     *
+     * @param gameState The current game state from a Node.
+     * @param possibleLocations The current Set of possible locations for Mr X.
+     *                          Used for E-Greedy Playouts.
+     * @param eGreedyPlayouts A EGreedyPlayouts class to define how moves should be picked.
+     * @param playoutTrace Trace which all moves in the simulation are added to.
+     * @param random Random number generator used to pick moves.
+     * @return Value of simulated game (winning piece)
+     */
+    public static Piece simulateGame (
+            AIGameState gameState,
+            PossibleLocations possibleLocations,
+            Heuristics.EGreedyPlayouts eGreedyPlayouts,
+            PlayoutTrace playoutTrace,
+            Random random) {
         AIGameState currentGameState = gameState;
         PossibleLocations currentPossibleLocations = possibleLocations;
 
@@ -334,7 +523,7 @@ public class Node {
 
         while (currentGameState.getWinner().isEmpty()) {
             Move move;
-            if (new Random().nextDouble() > eGreedyPlayouts.EPSILON) {
+            if (random.nextDouble() > eGreedyPlayouts.getEpsilon()) {
                 if (currentGameState.getAvailableMoves().asList().get(0).commencedBy().isMrX()) {
                     move = eGreedyPlayouts.getMrXBestMove(
                         currentGameState.getAvailableMoves(),
@@ -348,10 +537,11 @@ public class Node {
                 }
             } else {
                 move = currentGameState.getAvailableMoves().asList().get(
-                        new Random().nextInt(currentGameState.getAvailableMoves().size())
+                        random.nextInt(currentGameState.getAvailableMoves().size())
                 );
             }
 
+            playoutTrace.add(move);
             currentGameState = currentGameState.advance(move);
             currentPossibleLocations = currentPossibleLocations.updateLocations(currentGameState);
         }
@@ -365,21 +555,144 @@ public class Node {
      * @return Recurse up tree and returns value at root of tree.
      */
     public Piece backPropagation(Piece value) {
+        return this.backPropagation(value, new PlayoutTrace());
+    }
+
+    /**
+     * Back-propagates result from simulated game up the tree to the root, updating the
+     * all-moves-as-first statistics of each node on the way.
+     * @param value The Piece which won the simulated game
+     * @param playoutTrace Moves made below this node during the iteration. Moves on the path
+     *                     to the root are added to it.
+     * @return Recurse up tree and returns value at root of tree.
+     */
+    public Piece backPropagation(Piece value, PlayoutTrace playoutTrace) {
+        return this.backPropagation(value, playoutTrace, false);
+    }
+
+    /**
+     * Helper function to backPropagation.
+     * @param childSolved true if the child the result was propagated from is solved.
+     */
+    private Piece backPropagation(Piece value, PlayoutTrace playoutTrace, boolean childSolved) {
+        Node parent;
 //      Ensures that the count is only updated on node by single thread at a time.
         synchronized (this) {
+            parent = this.parent;
             this.totalPlays += 1;
             this.virtualLoss --;
+//          Only a parent's statistics are read, so leaves don't allocate any.
+            if (this.configuration.getRave().isEnabled() && !this.children.isEmpty()) {
+                this.updateAmaf(value, playoutTrace);
+            }
+            if (childSolved && this.provenWinner == null) this.updateProvenWinner();
 
             //      Root node
-            if (this.parent == null) {
-                this.totalValue += this.coalitionReduction.calculateValue(this.piece, value);
+            if (parent == null) {
+                this.totalValue += this.configuration.getCoalitionReduction().calculateValue(this.piece, value);
                 return value;
             } else {
-                this.totalValue += this.coalitionReduction.calculateValue(this.parent.piece, value);
+                this.totalValue += this.configuration.getCoalitionReduction().calculateValue(parent.piece, value);
             }
+            playoutTrace.add(this.previousMove);
         }
 
 //      Recurse value to top of tree.
-        return this.parent.backPropagation(value);
+        return parent.backPropagation(value, playoutTrace, this.isSolved());
+    }
+
+    /**
+     * Helper function to backPropagation. Solves the node if a child is a proven win for this
+     * node's piece, or if every move has been expanded and all children are proven losses.
+     * Must be called while holding the lock on this node.
+     */
+    private void updateProvenWinner() {
+        Piece lossWinner = null;
+        boolean allLosses = this.remainingMoves.isEmpty();
+
+        for (Node child : this.children) {
+            Piece childWinner = child.provenWinner;
+            if (childWinner == null) {
+                allLosses = false;
+            } else if (isSameSide(childWinner, this.piece)) {
+                this.provenWinner = childWinner;
+                return;
+            } else {
+                lossWinner = childWinner;
+            }
+        }
+
+        if (allLosses) this.provenWinner = lossWinner;
+    }
+
+    /**
+     * Helper function to backPropagation. Counts the first move to each destination made by this
+     * node's piece during the iteration as if it had been played from this node.
+     * Must be called while holding the lock on this node.
+     * @param value The Piece which won the simulated game
+     * @param playoutTrace Moves made below this node during the iteration.
+     */
+    private void updateAmaf(Piece value, PlayoutTrace playoutTrace) {
+        if (this.amafPlays == null) {
+            this.amafPlays = new int[PlayoutTrace.DESTINATIONS];
+            this.amafValues = new float[PlayoutTrace.DESTINATIONS];
+        }
+
+        float nodeValue = (float) this.configuration.getCoalitionReduction().calculateValue(this.piece, value);
+        int pieceIndex = PlayoutTrace.getPieceIndex(this.piece);
+        long[] seen = new long[(PlayoutTrace.DESTINATIONS + 63) / 64];
+
+        for (int i = 0; i < playoutTrace.size(); i++) {
+            if (playoutTrace.getPieceIndex(i) != pieceIndex) continue;
+
+            int destination = playoutTrace.getDestination(i);
+            if ((seen[destination >> 6] & (1L << destination)) != 0) continue;
+            seen[destination >> 6] |= 1L << destination;
+
+            this.amafPlays[destination]++;
+            this.amafValues[destination] += nodeValue;
+        }
+    }
+
+    /**
+     * Moves made during a single iteration, stored as packed ints of piece and destination
+     * so that they can be added to the all-moves-as-first statistics without boxing.
+     */
+    public static class PlayoutTrace {
+        static final int DESTINATIONS = 200;
+        private int[] moves = new int[32];
+        private int size = 0;
+
+        /**
+         * @param piece Piece to get index of
+         * @return 0 for Mr X, and 1 to 5 for the detectives.
+         */
+        static int getPieceIndex(Piece piece) {
+            if (piece.isMrX()) return 0;
+            return ((Piece.Detective) piece).ordinal() + 1;
+        }
+
+        /**
+         * Adds a move to the end of the trace.
+         * @param move Move to record
+         */
+        public void add(Move move) {
+            if (this.size == this.moves.length) this.moves = Arrays.copyOf(this.moves, this.size * 2);
+
+            int destination = move.accept(new MoveVisitors.DestinationVisitor());
+            this.moves[this.size++] = getPieceIndex(move.commencedBy()) * DESTINATIONS + destination;
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        int getPieceIndex(int index) {
+            return this.moves[index] / DESTINATIONS;
+        }
+
+        int getDestination(int index) {
+            return this.moves[index] % DESTINATIONS;
+        }
     }
 }
@@ -0,0 +1,217 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Tunes the parameters of the search by self-play in the {@link Arena}. Parameters are swept one at
+ * a time over a grid of values: each value plays against the best profile found so far, and the
+ * value with the highest score among those shown to be stronger replaces the current one. A value
+ * is stronger if the SPRT accepts it, or if its score is above half with 95% confidence. The best
+ * profile is written to {@value #FILENAME} after each parameter, so a sweep can be stopped at any
+ * point and the profile used with the {@value SearchConfiguration#PROFILE_PROPERTY} system property.
+ * Games search a fixed number of iterations per move, which should be about the number the
+ * hardware reaches in the time limit.
+ */
+public class ParameterSweep {
+    public static final String FILENAME = "profile.properties";
+    private static final String PARAMETER_PREFIX = "scotlandyard.ai.";
+
+    final private GameSimulator gameSimulator;
+    final private int iterations;
+    final private long pairsPerValue;
+    final private int concurrentPairs;
+    final private Arena.Sprt sprt;
+    final private Random seeds;
+    final private Properties bestProfile;
+
+    /**
+     * @param gameSimulator Simulator used to play each game
+     * @param initialProfile Profile to start the sweep from
+     * @param iterations Iterations searched for each move
+     * @param pairsPerValue Maximum pairs of games played for each value
+     * @param concurrentPairs Number of pairs played at once
+     * @param seed Seed used to generate the seed of each arena
+     */
+    public ParameterSweep (GameSimulator gameSimulator,
+                           Properties initialProfile,
+                           int iterations,
+                           long pairsPerValue,
+                           int concurrentPairs,
+                           long seed) {
+        this.gameSimulator = gameSimulator;
+        this.iterations = iterations;
+        this.pairsPerValue = pairsPerValue;
+        this.concurrentPairs = concurrentPairs;
+        this.sprt = new Arena.Sprt(0, 50, 0.05, 0.05);
+        this.seeds = new Random(seed);
+        this.bestProfile = new Properties();
+        this.bestProfile.putAll(initialProfile);
+    }
+
+    /**
+     * Plays each value of a parameter against the best profile, keeping the value with the highest
+     * score among those shown to be stronger than the current value.
+     * @param parameter Name of the parameter (see {@link SearchConfiguration})
+     * @param values Values to try
+     * @return Value of the parameter in the best profile after the sweep.
+     * @throws InterruptedException if interrupted while waiting for the games to finish
+     */
+    public String sweep (String parameter, List<String> values) throws InterruptedException {
+        String currentValue = this.bestProfile.getProperty(parameter);
+        String bestValue = currentValue;
+        double bestScore = 0;
+
+        for (String value : values) {
+            if (value.equals(currentValue)) continue;
+
+            Properties candidate = new Properties();
+            candidate.putAll(this.bestProfile);
+            candidate.setProperty(parameter, value);
+
+            Arena arena = new Arena(
+                    this.gameSimulator,
+                    Arena.Contender.withProfile(parameter + "=" + value, this.iterations, candidate),
+                    Arena.Contender.withProfile(parameter + "=" + currentValue, this.iterations, this.bestProfile),
+                    this.sprt,
+                    this.seeds.nextLong()
+            );
+            arena.run(this.pairsPerValue, this.concurrentPairs);
+            System.out.println(arena.getReport());
+
+            if (arena.isFirstStronger() && arena.getScore() > bestScore) {
+                bestScore = arena.getScore();
+                bestValue = value;
+            }
+        }
+
+        if (bestValue != null) this.bestProfile.setProperty(parameter, bestValue);
+        return bestValue;
+    }
+
+    /**
+     * @return Copy of the best profile found so far.
+     */
+    public Properties getBestProfile () {
+        Properties profile = new Properties();
+        profile.putAll(this.bestProfile);
+        return profile;
+    }
+
+    /**
+     * Helper function to main. Parses a parameter and its values.
+     * @param argument Parameter and comma separated values, e.g. "playout.epsilon=0.1,0.2,0.3". The
+     *                 "scotlandyard.ai." prefix of the parameter may be left out.
+     * @param grid Grid to add the parameter to
+     * @throws IllegalArgumentException if the argument isn't in the correct format
+     */
+    private static void addToGrid (String argument, Map<String, List<String>> grid) {
+        int separator = argument.indexOf('=');
+        if (separator <= 0 || separator == argument.length() - 1) {
+            throw new IllegalArgumentException("Expected parameter=value,value,... but got " + argument);
+        }
+
+        String parameter = argument.substring(0, separator).trim();
+        if (!parameter.startsWith(PARAMETER_PREFIX)) parameter = PARAMETER_PREFIX + parameter;
+
+        List<String> values = new ArrayList<>();
+        for (String value : argument.substring(separator + 1).split(",")) {
+            values.add(value.trim());
+        }
+        grid.put(parameter, values);
+    }
+
+    /**
+     * Helper function to main.
+     * @return Grid of the parameters which most affect the strength of the search.
+     */
+    private static Map<String, List<String>> getDefaultGrid () {
+        Map<String, List<String>> grid = new LinkedHashMap<>();
+        grid.put(SearchConfiguration.EXPLORATION_MRX_PROPERTY, List.of("0.5", "1.0", "2.0"));
+        grid.put(SearchConfiguration.EXPLORATION_DETECTIVE_PROPERTY, List.of("1.5", "3.0", "6.0"));
+        grid.put(SearchConfiguration.COALITION_REDUCTION_PROPERTY, List.of("0.25", "0.375", "0.5"));
+        grid.put(SearchConfiguration.EPSILON_PROPERTY, List.of("0.1", "0.2", "0.3"));
+        return grid;
+    }
+
+    /**
+     * Runs a sweep, starting from the profile named by the {@value SearchConfiguration#PROFILE_PROPERTY}
+     * system property if set, otherwise from the default parameters.
+     * @param args Iterations per move (default 500), maximum pairs of games for each value (default
+     *             200), then any number of parameters and their values, e.g. "coalition.r=0.25,0.5".
+     *             Exploration coefficients, coalition reduction and playout epsilon are swept if no
+     *             parameters are given.
+     */
+    public static void main (String[] args) throws InterruptedException {
+        try {
+            int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+            long pairsPerValue = args.length > 1 ? Long.parseLong(args[1]) : 200;
+
+            Map<String, List<String>> grid = new LinkedHashMap<>();
+            for (int i = 2; i < args.length; i++) {
+                ParameterSweep.addToGrid(args[i], grid);
+            }
+            if (grid.isEmpty()) grid = ParameterSweep.getDefaultGrid();
+
+            Properties initialProfile = new SearchConfiguration(new Heuristics.MovePriors()).toProperties();
+            String profileFile = System.getProperty(SearchConfiguration.PROFILE_PROPERTY);
+            if (profileFile != null) initialProfile.putAll(SearchConfiguration.loadProfile(new File(profileFile)));
+
+//          Fails before any games are played if a value isn't valid.
+            for (Map.Entry<String, List<String>> parameter : grid.entrySet()) {
+                for (String value : parameter.getValue()) {
+                    Properties candidate = new Properties();
+                    candidate.putAll(initialProfile);
+                    candidate.setProperty(parameter.getKey(), value);
+                    SearchConfiguration.fromProperties(candidate, new Heuristics.MovePriors());
+                }
+            }
+
+            GameSimulator gameSimulator = GameSimulator.fromSystemProperties(
+                    new GameSetup(
+                            ScotlandYard.standardGraph(),
+                            ScotlandYard.STANDARD24MOVES
+                    ),
+                    new AIGameStateFactory()
+            );
+
+            ParameterSweep parameterSweep = new ParameterSweep(
+                    gameSimulator,
+                    initialProfile,
+                    iterations,
+                    pairsPerValue,
+                    Integer.getInteger(ConcurrentGameRunner.GAMES_PROPERTY, Runtime.getRuntime().availableProcessors()),
+                    Long.getLong(GameSimulator.SEED_PROPERTY, System.nanoTime())
+            );
+
+            for (Map.Entry<String, List<String>> parameter : grid.entrySet()) {
+                String value = parameterSweep.sweep(parameter.getKey(), parameter.getValue());
+                System.out.println("Best " + parameter.getKey() + ": " + value);
+
+                SearchConfiguration.saveProfile(
+                        parameterSweep.getBestProfile(),
+                        new File(FILENAME),
+                        "Best profile at " + iterations + " iterations per move"
+                );
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Iterations and pairs must be numbers");
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println("Couldn't read the game graph or profile: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
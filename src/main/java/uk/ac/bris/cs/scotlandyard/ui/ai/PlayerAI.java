@@ -6,62 +6,156 @@ import uk.ac.bris.cs.scotlandyard.model.Move;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Interface used to define AI for detectives and Mr X.
  * Not the same as {@link uk.ac.bris.cs.scotlandyard.model.Ai} implemented with {@link MyAi}
  */
 public interface PlayerAI {
+    /**
+     * Time between checks of whether the search can end early, in milliseconds.
+     */
+    long POLL_INTERVAL = 10;
+
+    /**
+     * Minimum time the search runs for before ending early, so that the iteration rate can be measured.
+     */
+    long MINIMUM_SEARCH_TIME = 50;
+
     /**
      * Agents will run using multiple threads to maximize their iterations within the time limit.
+     * The search ends early once the best move can no longer change.
      * @param mctsTree the MCTS tree in which the agent uses
      * @param timeout Maximum time for iterations to run in milliseconds.
      * */
-    static void runThreads(Node mctsTree, long timeout, ExecutorService executorService) {
-        try {
-            MCTS mcts = new MCTS(mctsTree);
-            Callable<Object> callableMCTS = Executors.callable(mcts);
+    static void runThreads(Node mctsTree, long timeout, SearchExecutor searchExecutor) {
+        long startTime = System.currentTimeMillis();
+        long endTime = startTime + timeout;
+        AtomicBoolean stop = new AtomicBoolean(false);
 
-            List<Callable<Object>> mctsList = new ArrayList<>(50000);
-            for (int i = 0; i < 50000; i++){
-                mctsList.add(callableMCTS);
-            }
+        int threads = searchExecutor.getWorkerCount();
+        List<SearchExecutor.Worker> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            workers.add(searchExecutor.submitWorker(() -> {
+                MCTS mcts = new MCTS(mctsTree);
+                while (!stop.get() && System.currentTimeMillis() < endTime) {
+                    mcts.run();
+                }
+            }));
+        }
 
-            executorService.invokeAll(mctsList, timeout, TimeUnit.MILLISECONDS);
+        try {
+            long currentTime = System.currentTimeMillis();
+            while (currentTime < endTime && !PlayerAI.isSearchDecided(mctsTree, startTime, currentTime, endTime)) {
+                Thread.sleep(Math.min(POLL_INTERVAL, endTime - currentTime));
+                currentTime = System.currentTimeMillis();
+            }
 
 //      Not expected to receive an interrupt on current thread so just return early.
         }
         catch (InterruptedException e) {
             System.out.println("Current thread interrupted while sleeping");
         }
+        finally {
+            stop.set(true);
+            PlayerAI.awaitWorkers(workers);
+        }
+    }
+
+    /**
+     * Helper function to runThreads. Checks if the search can end before the time limit.
+     * @param mctsTree the MCTS tree being searched
+     * @param startTime time the search started in milliseconds
+     * @param currentTime current time in milliseconds
+     * @param endTime time the search must end by in milliseconds
+     * @return true if the root is solved, or the most visited child can't be overtaken at the current
+     * iteration rate.
+     */
+    private static boolean isSearchDecided(Node mctsTree, long startTime, long currentTime, long endTime) {
+        if (mctsTree.isSolved()) return true;
+
+        long elapsedTime = currentTime - startTime;
+        if (elapsedTime < MINIMUM_SEARCH_TIME) return false;
+
+        double playsPerMilli = mctsTree.getTotalPlays() / elapsedTime;
+        return mctsTree.isBestChildDecided(playsPerMilli * (endTime - currentTime));
+    }
+
+    /**
+     * Waits for every worker to finish its current iteration. Workers which haven't started are
+     * cancelled rather than waited for, so that a search doesn't wait for other searches using the
+     * pool to finish.
+     * @param workers Workers running the search, which must have been told to stop
+     */
+    static void awaitWorkers(List<SearchExecutor.Worker> workers) {
+        for (SearchExecutor.Worker worker : workers) {
+            if (worker.cancelIfNotStarted()) continue;
+
+            try {
+                worker.get();
+            } catch (ExecutionException e) {
+                System.err.println("MCTS worker failed: " + e.getCause());
+            } catch (InterruptedException e) {
+                worker.cancel(true);
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 
     /**
-     * Runs the MCTS algorithm from the passed in game state and returns the best move.
-     * @param gameState game state to be used in MCTS algorithm
+     * Builds an empty MCTS tree for the passed in game state.
+     * @param gameState game state at the root of the tree
      * @param possibleLocations possible locations of Mr X
-     * @param timeoutPair Maximum time allowed by game for AI to run.
-     * @param BUFFER buffer used to limit the time allowed
+     * @param configuration heuristics used by the search
      * */
-    static Move runMCTSForGameState(
+    static Node buildTree(
             AIGameState gameState,
             PossibleLocations possibleLocations,
-            Pair<Long, TimeUnit> timeoutPair,
-            long BUFFER,
-            ExecutorService executorService){
+            SearchConfiguration configuration){
+
+        return new Node(gameState, possibleLocations, configuration);
+    }
+
+    /**
+     * Runs the MCTS algorithm on an existing tree, which may already contain results from an
+     * earlier search, and returns the best move.
+     * Returns immediately if only one move is possible after filtering.
+     * @param mctsTree tree to search
+     * @param timeToRun Time to run the search for in milliseconds.
+     * */
+    static Move runMCTS(Node mctsTree, long timeToRun, SearchExecutor searchExecutor){
+        Optional<Move> forcedMove = mctsTree.getForcedMove();
+        if (forcedMove.isPresent()) return forcedMove.get();
+
+        PlayerAI.runThreads(mctsTree, timeToRun, searchExecutor);
 
-        Node mctsTree = new Node(
-                gameState,
-                possibleLocations,
-                new Heuristics.MoveFiltering(),
-                new Heuristics.CoalitionReduction(),
-                new Heuristics.ExplorationCoefficient()
-        );
+//      Runs an iteration on this thread if no worker started before the time ran out, which can happen
+//      when other games are using the pool, so that there is always a child to choose.
+        if (!mctsTree.hasChildren()) new MCTS(mctsTree).run();
+
+        return mctsTree.getBestChild().getPreviousMove();
+    }
 
-        long timeToRun = timeoutPair.right().toMillis(timeoutPair.left()) - BUFFER;
+    /**
+     * Runs the MCTS algorithm on an existing tree for a fixed number of iterations on the current
+     * thread, so that the result only depends on the seed of the budget.
+     * The search ends early once the best move can no longer change.
+     * @param mctsTree tree to search
+     * @param iterationBudget number of iterations and random number generator to use
+     * */
+    static Move runMCTS(Node mctsTree, IterationBudget iterationBudget){
+        Optional<Move> forcedMove = mctsTree.getForcedMove();
+        if (forcedMove.isPresent()) return forcedMove.get();
 
-        PlayerAI.runThreads(mctsTree, timeToRun, executorService);
+        MCTS mcts = new MCTS(mctsTree, iterationBudget.getRandom());
+        int iterations = iterationBudget.getIterations();
+        for (int i = 0; i < iterations; i++) {
+            if (mctsTree.isSolved() || (i > 0 && mctsTree.isBestChildDecided(iterations - i))) break;
+            mcts.run();
+        }
 
         return mctsTree.getBestChild().getPreviousMove();
     }
@@ -74,5 +168,17 @@ public interface PlayerAI {
      * */
     Move generateBestMove (Board board, Pair<Long, TimeUnit> timeoutPair);
 
+    /**
+     * Stops any search still running in the background from the last move, so that it doesn't
+     * compete with another search for processors.
+     * */
+    void stopPondering ();
+
+    /**
+     * @return Number of MCTS iterations run to choose the last move, not counting iterations from
+     * pondering.
+     * */
+    long getLastIterations ();
+
 
 }
@@ -0,0 +1,195 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import io.atlassian.fugue.Pair;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps searching the subtree of the move just made while the other players are deciding on their
+ * moves. On the next turn, the node matching the moves the detectives actually made is reused as the
+ * root of the search rather than starting from an empty tree.
+ * Only detective moves can be matched, since Mr X's moves are hidden from the detectives.
+ */
+public class Ponderer {
+    /**
+     * Upper bound on the memory used by each iteration. An iteration adds at most one node, which
+     * holds its game state, possible locations and, once it has children, an AMAF table of about
+     * 1.6 KB (leaves don't allocate one). Measured at about 4.5 KB per iteration for both sides.
+     */
+    final static int BYTES_PER_ITERATION = 5_000;
+    /**
+     * Fraction of the maximum heap size that pondering may fill with new nodes.
+     */
+    final static double MEMORY_FRACTION = 0.25;
+
+    final private SearchExecutor searchExecutor;
+    private Node ponderTree;
+    private AIGameState ponderGameState;
+    private AtomicBoolean stop;
+    private List<SearchExecutor.Worker> workers = List.of();
+
+    public Ponderer (SearchExecutor searchExecutor) {
+        this.searchExecutor = searchExecutor;
+    }
+
+    /**
+     * Starts searching the subtree reached by the move in the background.
+     * Nothing is searched if the move wasn't added to the tree, or if the game is over after it.
+     * @param mctsTree Tree the move was chosen from
+     * @param move Move that was made
+     * @param gameState Game state at the root of the tree
+     */
+    public synchronized void start (Node mctsTree, Move move, AIGameState gameState) {
+        this.stop();
+
+        Optional<Node> child = mctsTree.getChild(move);
+        if (child.isEmpty() || !child.get().isNotGameOver()) return;
+
+        Node tree = child.get();
+        tree.detach();
+        this.ponderTree = tree;
+        this.ponderGameState = gameState.advance(move);
+
+        AtomicBoolean stop = new AtomicBoolean(false);
+        AtomicInteger iterations = new AtomicInteger(0);
+        int maxIterations = Ponderer.getMaxIterations();
+        int threads = this.searchExecutor.getWorkerCount();
+        List<SearchExecutor.Worker> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            workers.add(this.searchExecutor.submitWorker(() -> {
+                MCTS mcts = new MCTS(tree);
+                while (!stop.get() && !tree.isSolved() && iterations.getAndIncrement() < maxIterations) {
+                    mcts.run();
+                }
+            }));
+        }
+        this.stop = stop;
+        this.workers = workers;
+    }
+
+    /**
+     * Helper function to start.
+     * @return Maximum iterations run while pondering, so that the nodes they add fit in
+     * {@link #MEMORY_FRACTION} of the maximum heap size.
+     */
+    static int getMaxIterations () {
+        return Ponderer.getMaxIterations(Runtime.getRuntime().maxMemory());
+    }
+
+    /**
+     * @param maxMemory Maximum heap size in bytes
+     * @return Maximum iterations run while pondering with the given heap size.
+     */
+    static int getMaxIterations (long maxMemory) {
+        long budget = (long) (maxMemory * MEMORY_FRACTION);
+        return (int) Math.min(Integer.MAX_VALUE, budget / BYTES_PER_ITERATION);
+    }
+
+    /**
+     * Stops pondering and waits for the current iterations to finish. The pondered tree is kept.
+     */
+    public synchronized void stop () {
+        if (this.stop == null) return;
+
+        this.stop.set(true);
+        PlayerAI.awaitWorkers(this.workers);
+        this.stop = null;
+        this.workers = List.of();
+    }
+
+    /**
+     * Stops pondering and finds the node of the pondered tree reached by the detective moves made
+     * since it started. The pondered tree is discarded either way.
+     * @param board Current game board
+     * @param possibleLocations Current possible locations of Mr X
+     * @return Node matching the board, detached from its tree, paired with the game state of the
+     * node. Empty if Mr X has moved since, the Mr X location the tree assumed is no longer possible,
+     * or the moves weren't searched.
+     */
+    public synchronized Optional<Pair<Node, AIGameState>> promote (Board board,
+                                                                   PossibleLocations possibleLocations) {
+        this.stop();
+        Node tree = this.ponderTree;
+        AIGameState gameState = this.ponderGameState;
+        this.ponderTree = null;
+        this.ponderGameState = null;
+
+        if (tree == null) return Optional.empty();
+        if (board.getMrXTravelLog().size() != gameState.getMrXTravelLog().size()) return Optional.empty();
+        if (!possibleLocations.getLocations().contains(gameState.getMrXLocation())) return Optional.empty();
+
+//      Works out each detective's move from the change in its location and tickets.
+        List<Move> detectiveMoves = new ArrayList<>();
+        for (Piece piece : board.getPlayers()) {
+            if (piece.isMrX()) continue;
+
+            Piece.Detective detective = (Piece.Detective) piece;
+            int source = gameState.getDetectiveLocation(detective).orElseThrow();
+            int destination = board.getDetectiveLocation(detective).orElseThrow();
+            if (source == destination) continue;
+
+            Optional<Ticket> ticket = Ponderer.getUsedTicket(gameState, board, detective);
+            if (ticket.isEmpty()) return Optional.empty();
+            detectiveMoves.add(new Move.SingleMove(detective, source, ticket.get(), destination));
+        }
+
+        boolean mrXTurn = board.getAvailableMoves().asList().get(0).commencedBy().isMrX();
+        Optional<Pair<Node, AIGameState>> promoted = Ponderer.findNode(tree, gameState, detectiveMoves, mrXTurn);
+        promoted.ifPresent(p -> p.left().detach());
+        return promoted;
+    }
+
+    /**
+     * Helper function to promote. Finds the ticket a detective used between two boards.
+     * @return Ticket which the detective has one less of, or empty if there isn't one.
+     */
+    private static Optional<Ticket> getUsedTicket (Board before, Board after, Piece.Detective detective) {
+        Board.TicketBoard ticketsBefore = before.getPlayerTickets(detective).orElseThrow();
+        Board.TicketBoard ticketsAfter = after.getPlayerTickets(detective).orElseThrow();
+        for (Ticket ticket : Ticket.values()) {
+            if (ticketsBefore.getCount(ticket) - ticketsAfter.getCount(ticket) == 1) return Optional.of(ticket);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Helper function to promote. Detectives may move in any order, so every order is tried.
+     * @param node Node to search from
+     * @param gameState Game state of the node
+     * @param moves Detective moves still to be matched
+     * @param mrXTurn true if it is Mr X's turn on the current board
+     * @return Node reached by making all the moves and its game state, if it is in the tree and the
+     * same side is to move.
+     */
+    private static Optional<Pair<Node, AIGameState>> findNode (Node node,
+                                                               AIGameState gameState,
+                                                               List<Move> moves,
+                                                               boolean mrXTurn) {
+        if (moves.isEmpty()) {
+            if (node.isNotGameOver() && node.getPiece().isMrX() == mrXTurn) {
+                return Optional.of(new Pair<>(node, gameState));
+            }
+            return Optional.empty();
+        }
+
+        for (Move move : moves) {
+            Optional<Node> child = node.getChild(move);
+            if (child.isEmpty()) continue;
+
+            List<Move> remainingMoves = new ArrayList<>(moves);
+            remainingMoves.remove(move);
+            Optional<Pair<Node, AIGameState>> found =
+                    Ponderer.findNode(child.get(), gameState.advance(move), remainingMoves, mrXTurn);
+            if (found.isPresent()) return found;
+        }
+        return Optional.empty();
+    }
+}
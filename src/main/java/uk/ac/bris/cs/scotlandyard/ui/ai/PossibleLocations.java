@@ -5,6 +5,7 @@ import uk.ac.bris.cs.scotlandyard.model.Board;
 
 import javax.annotation.Nonnull;
 import java.util.List;
+import java.util.Random;
 
 /**
  * Stores the current possible locations for Mr X.
@@ -20,6 +21,19 @@ public interface PossibleLocations {
 
     ImmutableSet<Integer> getLocations ();
 
+    /**
+     * @param location Location on the board
+     * @return Probability that Mr X is at the location, zero if it isn't one of the possible locations.
+     */
+    double getProbability (int location);
+
+    /**
+     * Samples a possible location in constant time, in proportion to its probability.
+     * @param random Random number generator to sample with
+     * @return Possible location of Mr X.
+     */
+    int sample (Random random);
+
     /**
      * Gets the current turn from the class.
      * @return int of current turn
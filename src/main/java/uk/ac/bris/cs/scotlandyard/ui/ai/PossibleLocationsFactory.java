@@ -1,7 +1,7 @@
 package uk.ac.bris.cs.scotlandyard.ui.ai;
 
 import com.google.common.collect.ImmutableSet;
-import com.google.common.graph.EndpointPair;
+import com.google.common.collect.MapMaker;
 import com.google.common.graph.ImmutableValueGraph;
 import uk.ac.bris.cs.scotlandyard.model.Board;
 import uk.ac.bris.cs.scotlandyard.model.LogEntry;
@@ -9,122 +9,201 @@ import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
 
 import javax.annotation.Nonnull;
 import java.util.*;
+import java.util.concurrent.ConcurrentMap;
 
 import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.MRX_LOCATIONS;
 
 public class PossibleLocationsFactory {
 
+    /**
+     * Possible locations stored as a bit set of locations, so that updates are a few operations on
+     * whole words rather than building sets of boxed locations. Alongside the set is a belief: the
+     * probability of Mr X being at each location, assuming he picks uniformly between the
+     * destinations his ticket can take him to.
+     */
     @SuppressWarnings("UnstableApiUsage")
     private static final class MyPossibleLocations implements PossibleLocations {
 
-        private final ImmutableSet<Integer> locations;
+//      Locations reachable from each location with each ticket, built once per graph. Graphs are
+//      compared by identity, since comparing them by value would compare every edge.
+        private static final ConcurrentMap<ImmutableValueGraph<Integer, ImmutableSet<ScotlandYard.Transport>>, long[][][]> transitionMasks =
+                new MapMaker().weakKeys().makeMap();
+
+        private final long[] locationBits;
+//      Indexed by location, with a probability for every bit in locationBits.
+        private final float[] probabilities;
         private final int turn;
 
+//      Built the first time they are asked for. They are immutable, so they are cached without locking.
+        private ImmutableSet<Integer> locations;
+        private AliasSampler sampler;
+
         public MyPossibleLocations(Collection<Integer> locations, int turn){
-            this.locations = ImmutableSet.copyOf(locations);
+            int maxLocation = locations.stream().mapToInt(Integer::intValue).max().orElse(0);
+            this.locationBits = new long[MyPossibleLocations.getWords(maxLocation + 1)];
+            float[] probabilities = new float[this.locationBits.length * Long.SIZE];
+            for (int location : locations) {
+                MyPossibleLocations.setBit(this.locationBits, location);
+                probabilities[location] = 1;
+            }
+//          Mr X is equally likely to start at any of the locations.
+            this.probabilities = MyPossibleLocations.normalise(probabilities, this.locationBits);
+            this.turn = turn;
+        }
+
+        private MyPossibleLocations(long[] locationBits, float[] probabilities, int turn){
+            this.locationBits = locationBits;
+            this.probabilities = probabilities;
             this.turn = turn;
         }
 
         /**
-         * Helper function to generatePossibleNewLocations. Takes an edge of the graph and sees if it uses a
-         * specific given ticket type
-         * @param edge edge to be checked
-         * @param usedTicket ticket type to check against the edge
-         * @param graph graph of the game
-         * @return a predicate whether the edge uses that ticket type
-         * @throws IllegalStateException if the edge doesn't exist
-         * */
-        private static boolean checkEdgeUsesTicket (EndpointPair<Integer> edge,
-                                                 ScotlandYard.Ticket usedTicket,
-                                                 ImmutableValueGraph<Integer, ImmutableSet<ScotlandYard.Transport>> graph){
-            //Extract type of transport that is used to go to the edge
-            ImmutableSet<ScotlandYard.Transport> transports = graph.edgeValue(edge).orElseThrow();
-            List<ScotlandYard.Ticket> tickets = transports
-                    .stream()
-                    .map(t -> t.requiredTicket())
-                    .toList();
-
-            return tickets.contains(usedTicket); //returns true if edge contains ticket of specific type
+         * @param locations Number of locations
+         * @return Number of words needed to hold a bit for each location.
+         */
+        private static int getWords (int locations) {
+            return (locations + Long.SIZE - 1) / Long.SIZE;
+        }
+
+        private static boolean isBitSet (long[] bits, int location) {
+            int word = location / Long.SIZE;
+            return location >= 0 && word < bits.length && (bits[word] & (1L << location)) != 0;
+        }
+
+        private static void setBit (long[] bits, int location) {
+            bits[location / Long.SIZE] |= 1L << location;
+        }
+
+        private static void clearBit (long[] bits, int location) {
+            int word = location / Long.SIZE;
+            if (location >= 0 && word < bits.length) bits[word] &= ~(1L << location);
         }
 
         /**
-         * Algorithm for possible new locations of MrX from current possible locations.
-         * Helper function for generateDetectiveGameStates
-         * @param usedTicket ticket used by MrX
-         * @param detectiveLocations list of locations of the detectives
-         * @param oldPossibleLocations old possible locations of MrX calculated in previous turns
+         * Helper function to updateLocations. Builds the locations reachable from each location using
+         * each ticket. A secret ticket can be used on any edge, and the double ticket is never logged.
          * @param graph Graph of the game
-         * @return updated list of possible locations of MrX
+         * @return Masks indexed by ticket ordinal then location, null for locations not in the graph.
          * */
-        private static ImmutableSet<Integer> generatePossibleNewLocations (
-                ScotlandYard.Ticket usedTicket,
-                Collection<Integer> detectiveLocations,
-                Collection<Integer> oldPossibleLocations,
-                ImmutableValueGraph<Integer, ImmutableSet<ScotlandYard.Transport>> graph) {
-
-            ImmutableSet.Builder<Integer> builder = ImmutableSet.builder();
-            Set<Integer> detectiveLocationsSet = ImmutableSet.copyOf(detectiveLocations);
-
-            for (int oldPossibleLocation : oldPossibleLocations) {
-                builder.addAll(
-//              Gets all edges which connect to the current oldPossibleLocation.
-                        graph.incidentEdges(oldPossibleLocation)
-                        .stream()
-
-//                      Filters edges so only the ones which use the correct ticket are included
-                        .filter(edge -> usedTicket.equals(ScotlandYard.Ticket.SECRET) ||
-                                checkEdgeUsesTicket(edge, usedTicket, graph))
-
-//                      Gets the new locations from the edge and old location.
-                        .map(edge -> edge.adjacentNode(oldPossibleLocation))
-
-                        //Prune all possible locations that detectives are in
-                        .filter(l -> !detectiveLocationsSet.contains(l))
-                        .toList());
+        private static long[][][] buildTransitionMasks (ImmutableValueGraph<Integer, ImmutableSet<ScotlandYard.Transport>> graph) {
+            int locations = graph.nodes().stream().mapToInt(Integer::intValue).max().orElse(0) + 1;
+            long[][][] masks = new long[ScotlandYard.Ticket.values().length][locations][];
+
+            for (ScotlandYard.Ticket usedTicket : ScotlandYard.Ticket.values()) {
+                for (int source : graph.nodes()) {
+                    long[] mask = new long[MyPossibleLocations.getWords(locations)];
+                    for (int destination : graph.adjacentNodes(source)) {
+                        ImmutableSet<ScotlandYard.Transport> transports = graph.edgeValue(source, destination).orElseThrow();
+                        if (usedTicket == ScotlandYard.Ticket.SECRET ||
+                                transports.stream().anyMatch(t -> t.requiredTicket() == usedTicket)) {
+                            MyPossibleLocations.setBit(mask, destination);
+                        }
+                    }
+                    masks[usedTicket.ordinal()][source] = mask;
+                }
             }
-            return builder.build();
+            return masks;
         }
 
         /**
-         * Helper function to updateLocations
-         * @param locations locations to filter out
-         * @param detectiveLocations detective locations to be filtered out of locations
+         * Algorithm for possible new locations of MrX from current possible locations.
+         * Helper function for updateLocations. The probability of each old location is split equally
+         * between the locations reachable from it, so the new probabilities are left unnormalised.
+         * @param locationBits old possible locations of MrX calculated in previous turns
+         * @param probabilities probabilities of the old possible locations
+         * @param masks transition masks of the ticket used by MrX, indexed by location
+         * @param newLocationBits updated possible locations of MrX, before detective locations are removed
+         * @param newProbabilities updated weights of the possible locations
          * */
-        @Nonnull
-        private static ImmutableSet<Integer> filterDetectiveLocationsFromLocations(Collection<Integer> locations,
-                                                                    Collection<Integer> detectiveLocations){
-            return ImmutableSet.copyOf(locations
-                    .stream()
-                    .filter((location) -> !detectiveLocations.contains(location))
-                    .toList());
+        private static void generatePossibleNewLocations (long[] locationBits,
+                                                          float[] probabilities,
+                                                          long[][] masks,
+                                                          long[] newLocationBits,
+                                                          float[] newProbabilities) {
+            for (int word = 0; word < locationBits.length; word++) {
+                long bits = locationBits[word];
+                while (bits != 0) {
+                    int location = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+
+                    if (location >= masks.length || masks[location] == null) continue;
+                    long[] mask = masks[location];
+                    int transitions = 0;
+                    for (int i = 0; i < newLocationBits.length; i++) {
+                        newLocationBits[i] |= mask[i];
+                        transitions += Long.bitCount(mask[i]);
+                    }
+                    if (transitions == 0) continue;
+
+                    float share = probabilities[location] / transitions;
+                    for (int i = 0; i < mask.length; i++) {
+                        long destinations = mask[i];
+                        while (destinations != 0) {
+                            newProbabilities[i * Long.SIZE + Long.numberOfTrailingZeros(destinations)] += share;
+                            destinations &= destinations - 1;
+                        }
+                    }
+                }
+            }
         }
 
         /**
-         * Generate new possible locations based on MrX's ticket (from the log entry)
-         * Clears the old possible locations if it is a revealing turn
+         * Helper function to updateLocations. Scales the probabilities of the possible locations so
+         * that they sum to one.
+         * @param probabilities weights indexed by location
+         * @param locationBits possible locations, any others are given a probability of zero
+         * @return new array of normalised probabilities.
          * */
-        @Nonnull
-        private ImmutableSet<Integer> newLocationsFromLogEntry (LogEntry logEntry,
-                                                        Collection<Integer> newLocations,
-                                                        Board board,
-                                                        List<Integer> detectiveLocations){
-            //If revealing turn
-            if (logEntry.location().isPresent()) {
-                return ImmutableSet.of(logEntry.location().get());
+        private static float[] normalise (float[] probabilities, long[] locationBits) {
+            float[] normalised = new float[locationBits.length * Long.SIZE];
+            double totalWeight = 0;
+            for (int word = 0; word < locationBits.length; word++) {
+                long bits = locationBits[word];
+                while (bits != 0) {
+                    totalWeight += probabilities[word * Long.SIZE + Long.numberOfTrailingZeros(bits)];
+                    bits &= bits - 1;
+                }
             }
-            else {
-                return MyPossibleLocations.generatePossibleNewLocations(
-                        logEntry.ticket(),
-                        detectiveLocations,
-                        newLocations,
-                        board.getSetup().graph
-                );
+            if (totalWeight == 0) return normalised;
+
+            for (int word = 0; word < locationBits.length; word++) {
+                long bits = locationBits[word];
+                while (bits != 0) {
+                    int location = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                    normalised[location] = (float) (probabilities[location] / totalWeight);
+                    bits &= bits - 1;
+                }
             }
+            return normalised;
         }
 
+        /**
+         * Helper function to updateLocations. Removes the locations of detectives.
+         * @param locationBits locations to filter, which are modified if copy is false
+         * @param detectiveLocations detective locations to be filtered out of locations
+         * @param copy whether to copy the locations before the first location is removed
+         * @return filtered locations, the same array if nothing was removed and copy is true.
+         * */
+        private static long[] filterDetectiveLocations (long[] locationBits, List<Integer> detectiveLocations, boolean copy) {
+            long[] filtered = locationBits;
+            for (int detectiveLocation : detectiveLocations) {
+                if (!MyPossibleLocations.isBitSet(filtered, detectiveLocation)) continue;
+
+                if (copy && filtered == locationBits) filtered = locationBits.clone();
+                MyPossibleLocations.clearBit(filtered, detectiveLocation);
+            }
+            return filtered;
+        }
+
+        /**
+         * {@inheritDoc}
+         * Detective moves can only remove the locations they move onto, so they return these
+         * possible locations unless a detective has moved onto one of them.
+         */
         @Override @Nonnull
         public MyPossibleLocations updateLocations (Board board) {
-            if (board.getMrXTravelLog().size() - this.turn > 2){
+            int logSize = board.getMrXTravelLog().size();
+            if (logSize - this.turn > 2){
                 throw new IllegalArgumentException("Can't go further than a double move");
             }
 
@@ -136,20 +215,50 @@ public class PossibleLocationsFactory {
                 detectiveLocations = BoardHelpers.getDetectiveLocations(board);
             }
 
-          Set<Integer> newLocations = filterDetectiveLocationsFromLocations(this.getLocations(), detectiveLocations);
+            long[] newLocationBits = MyPossibleLocations.filterDetectiveLocations(this.locationBits, detectiveLocations, true);
+            float[] newProbabilities = this.probabilities;
+            if (newLocationBits != this.locationBits) {
+                newProbabilities = MyPossibleLocations.normalise(newProbabilities, newLocationBits);
+            }
 
-            if (board.getMrXTravelLog().size() > this.turn) {
+            if (logSize > this.turn) {
 //              Mr X has moved, so generate new possible locations and filter out any which detectives are in
-                List<LogEntry> logEntries = board.getMrXTravelLog()
-                        .subList(this.turn, board.getMrXTravelLog().size());
-                for (LogEntry logEntry : logEntries) {
-                    newLocations = newLocationsFromLogEntry(logEntry, newLocations, board, detectiveLocations);
+                long[][][] masks = transitionMasks.computeIfAbsent(
+                        board.getSetup().graph,
+                        MyPossibleLocations::buildTransitionMasks
+                );
+
+                for (LogEntry logEntry : board.getMrXTravelLog().subList(this.turn, logSize)) {
+                    //If revealing turn
+                    if (logEntry.location().isPresent()) {
+                        int location = logEntry.location().get();
+                        newLocationBits = new long[MyPossibleLocations.getWords(location + 1)];
+                        MyPossibleLocations.setBit(newLocationBits, location);
+                        newProbabilities = new float[newLocationBits.length * Long.SIZE];
+                        newProbabilities[location] = 1;
+                    }
+                    else {
+                        long[][] ticketMasks = masks[logEntry.ticket().ordinal()];
+                        long[] movedLocationBits = new long[MyPossibleLocations.getWords(ticketMasks.length)];
+                        float[] movedProbabilities = new float[movedLocationBits.length * Long.SIZE];
+                        MyPossibleLocations.generatePossibleNewLocations(
+                                newLocationBits,
+                                newProbabilities,
+                                ticketMasks,
+                                movedLocationBits,
+                                movedProbabilities
+                        );
+                        MyPossibleLocations.filterDetectiveLocations(movedLocationBits, detectiveLocations, false);
+                        newLocationBits = movedLocationBits;
+                        newProbabilities = MyPossibleLocations.normalise(movedProbabilities, movedLocationBits);
+                    }
                 }
-            } else {
-                newLocations = filterDetectiveLocationsFromLocations(newLocations, detectiveLocations);
+            }
+            else if (newLocationBits == this.locationBits && logSize == this.turn) {
+                return this;
             }
 
-            return new MyPossibleLocations(newLocations, board.getMrXTravelLog().size());
+            return new MyPossibleLocations(newLocationBits, newProbabilities, logSize);
         }
 
         @Override @Nonnull
@@ -158,7 +267,45 @@ public class PossibleLocationsFactory {
         }
 
         public ImmutableSet<Integer> getLocations () {
-            return this.locations;
+            ImmutableSet<Integer> locations = this.locations;
+            if (locations == null) {
+                ImmutableSet.Builder<Integer> builder = ImmutableSet.builder();
+                for (int word = 0; word < this.locationBits.length; word++) {
+                    long bits = this.locationBits[word];
+                    while (bits != 0) {
+                        builder.add(word * Long.SIZE + Long.numberOfTrailingZeros(bits));
+                        bits &= bits - 1;
+                    }
+                }
+                locations = builder.build();
+                this.locations = locations;
+            }
+            return locations;
+        }
+
+        @Override
+        public double getProbability (int location) {
+            if (location < 0 || location >= this.probabilities.length) return 0;
+            return this.probabilities[location];
+        }
+
+        /**
+         * {@inheritDoc}
+         * The alias table is built the first time a location is sampled.
+         * @throws IllegalArgumentException if there are no possible locations
+         */
+        @Override
+        public int sample (Random random) {
+            AliasSampler sampler = this.sampler;
+            if (sampler == null) {
+                double[] weights = new double[this.probabilities.length];
+                for (int location = 0; location < weights.length; location++) {
+                    weights[location] = this.probabilities[location];
+                }
+                sampler = new AliasSampler(weights);
+                this.sampler = sampler;
+            }
+            return sampler.sample(random);
         }
 
     }
@@ -0,0 +1,103 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+
+/**
+ * Replays games recorded by {@link GameRecorder} and prints statistics about them.
+ * Games are read and replayed one at a time, so any number of games can be analysed.
+ */
+public class ReplayStatistics {
+    private final DistancesSingleton distances = DistancesSingleton.getInstance();
+
+    private long games = 0;
+    private long mrXWins = 0;
+    private long rounds = 0;
+    private long mrXMoves = 0;
+    private long mrXDoubleMoves = 0;
+    private long mrXSecretMoves = 0;
+    private long totalMinDistance = 0;
+
+    /**
+     * Adds a game to the statistics.
+     * @param game Recorded game
+     */
+    public void addGame (GameRecords.RecordedGame game) {
+        Iterator<Move> moves = game.getMoves().iterator();
+        AIGameState finalState = null;
+
+        for (AIGameState state : game.getStates()) {
+            finalState = state;
+            if (!moves.hasNext()) break;
+
+            Move move = moves.next();
+            if (!move.commencedBy().isMrX()) continue;
+
+            this.mrXMoves++;
+            if (move instanceof Move.DoubleMove) this.mrXDoubleMoves++;
+            for (ScotlandYard.Ticket ticket : move.tickets()) {
+                if (ticket == ScotlandYard.Ticket.SECRET) this.mrXSecretMoves++;
+            }
+
+//          Distance from Mr X to the closest detective before he moves.
+            int mrXLocation = state.getMrXLocation();
+            this.totalMinDistance += state.getDetectiveLocations()
+                    .stream()
+                    .mapToInt(l -> this.distances.get(mrXLocation, l))
+                    .min()
+                    .orElse(0);
+        }
+
+        this.games++;
+        this.rounds += finalState.getMrXTravelLog().size();
+        if (finalState.getWinner().stream().anyMatch(p -> p.isMrX())) this.mrXWins++;
+    }
+
+    /**
+     * @return Statistics of the games added, one per line.
+     */
+    public String getReport () {
+        long games = Math.max(1, this.games);
+        long mrXMoves = Math.max(1, this.mrXMoves);
+        return String.format("Games: %d%n", this.games) +
+                String.format("Mr X win rate: %.1f%%%n", 100.0 * this.mrXWins / games) +
+                String.format("Average rounds: %.2f%n", (double) this.rounds / games) +
+                String.format("Mr X double moves: %.1f%%%n", 100.0 * this.mrXDoubleMoves / mrXMoves) +
+                String.format("Mr X secret tickets per move: %.3f%n", (double) this.mrXSecretMoves / mrXMoves) +
+                String.format("Average distance to closest detective: %.2f", (double) this.totalMinDistance / mrXMoves);
+    }
+
+    /**
+     * Prints statistics of a file of recorded games.
+     * @param args File of recorded games, "games.rec" if not given.
+     */
+    public static void main (String[] args) {
+        String filename = args.length > 0 ? args[0] : "games.rec";
+        GameSetup gameSetup;
+        try {
+            gameSetup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24MOVES);
+        } catch (IOException e) {
+            System.err.println("Couldn't read the game graph");
+            System.exit(1);
+            return;
+        }
+
+        ReplayStatistics replayStatistics = new ReplayStatistics();
+        try (GameRecords.Reader reader = new GameRecords.Reader(new File(filename), gameSetup, new AIGameStateFactory())) {
+            while (reader.hasNext()) {
+                replayStatistics.addGame(reader.next());
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Couldn't read " + filename + ": " + e.getMessage());
+            System.exit(1);
+        }
+
+        System.out.println(replayStatistics.getReport());
+    }
+}
@@ -0,0 +1,254 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+
+/**
+ * Heuristics used by a search. A single configuration is shared by every node of a tree, so that
+ * nodes don't each hold a reference to every heuristic, and the heuristics' parameters can be set
+ * at runtime from properties (e.g. the system properties) rather than being fixed constants.
+ * Parameters can also be kept in a profile, a properties file named by the {@value #PROFILE_PROPERTY}
+ * system property, such as one written by {@link ParameterSweep}.
+ */
+public class SearchConfiguration {
+    public static final String PROFILE_PROPERTY = "scotlandyard.ai.profile";
+    public static final String EXPLORATION_MRX_PROPERTY = "scotlandyard.ai.exploration.mrx";
+    public static final String EXPLORATION_DETECTIVE_PROPERTY = "scotlandyard.ai.exploration.detective";
+    public static final String WIDENING_COEFFICIENT_PROPERTY = "scotlandyard.ai.widening.coefficient";
+    public static final String WIDENING_EXPONENT_PROPERTY = "scotlandyard.ai.widening.exponent";
+    public static final String RAVE_ENABLED_PROPERTY = "scotlandyard.ai.rave.enabled";
+    public static final String RAVE_EQUIVALENCE_PROPERTY = "scotlandyard.ai.rave.equivalence";
+    public static final String COALITION_REDUCTION_PROPERTY = "scotlandyard.ai.coalition.r";
+    public static final String EPSILON_PROPERTY = "scotlandyard.ai.playout.epsilon";
+    public static final String PRIOR_TEMPERATURE_PROPERTY = "scotlandyard.ai.priors.temperature";
+    public static final String DOUBLE_MOVE_PENALTY_PROPERTY = "scotlandyard.ai.priors.doublemovepenalty";
+
+    final private Heuristics.MoveFiltering moveFilter;
+    final private Heuristics.CoalitionReduction coalitionReduction;
+    final private Heuristics.ExplorationCoefficient explorationCoefficient;
+    final private Heuristics.ProgressiveWidening progressiveWidening;
+    final private Heuristics.MovePriors movePriors;
+    final private Heuristics.Rave rave;
+    final private Heuristics.EGreedyPlayouts eGreedyPlayouts;
+
+    /**
+     * Uses the default parameters of every heuristic.
+     * @param movePriors Priors used to order and select moves in the search.
+     */
+    public SearchConfiguration (Heuristics.MovePriors movePriors) {
+        this(
+                new Heuristics.MoveFiltering(),
+                new Heuristics.CoalitionReduction(),
+                new Heuristics.ExplorationCoefficient(),
+                new Heuristics.ProgressiveWidening(),
+                movePriors,
+                new Heuristics.Rave(),
+                new Heuristics.EGreedyPlayouts()
+        );
+    }
+
+    /**
+     * @param moveFilter move filtering heuristic
+     * @param coalitionReduction coalition reduction heuristic
+     * @param explorationCoefficient exploration constants for PUCT selection
+     * @param progressiveWidening progressive widening heuristic
+     * @param movePriors move priors heuristic
+     * @param rave rapid action value estimation heuristic
+     * @param eGreedyPlayouts heuristic used to pick moves in playouts
+     */
+    public SearchConfiguration (Heuristics.MoveFiltering moveFilter,
+                                Heuristics.CoalitionReduction coalitionReduction,
+                                Heuristics.ExplorationCoefficient explorationCoefficient,
+                                Heuristics.ProgressiveWidening progressiveWidening,
+                                Heuristics.MovePriors movePriors,
+                                Heuristics.Rave rave,
+                                Heuristics.EGreedyPlayouts eGreedyPlayouts) {
+        this.moveFilter = moveFilter;
+        this.coalitionReduction = coalitionReduction;
+        this.explorationCoefficient = explorationCoefficient;
+        this.progressiveWidening = progressiveWidening;
+        this.movePriors = movePriors;
+        this.rave = rave;
+        this.eGreedyPlayouts = eGreedyPlayouts;
+    }
+
+    /**
+     * Builds a configuration from properties, using the default of any parameter that isn't set.
+     * @param properties Properties to read the parameters from, such as the system properties
+     * @param movePriors Priors to take the transition model from. Their temperature and double
+     *                   move penalty are replaced if set in the properties.
+     * @return Configuration with the parameters from the properties.
+     * @throws IllegalArgumentException if a numeric parameter is set to something other than a finite
+     * number, or {@value #RAVE_ENABLED_PROPERTY} to something other than true or false
+     */
+    public static SearchConfiguration fromProperties (Properties properties, Heuristics.MovePriors movePriors) {
+        return SearchConfiguration.fromProperties(properties, movePriors, true);
+    }
+
+    /**
+     * Builds a configuration from properties, using the default of any parameter that isn't set or
+     * is invalid. Each invalid parameter is reported on standard error, and the other parameters are
+     * still used.
+     * @param properties Properties to read the parameters from, such as the system properties
+     * @param movePriors Priors to take the transition model from. Their temperature and double
+     *                   move penalty are replaced if set in the properties.
+     * @return Configuration with the valid parameters from the properties.
+     */
+    public static SearchConfiguration fromPropertiesOrDefaults (Properties properties, Heuristics.MovePriors movePriors) {
+        return SearchConfiguration.fromProperties(properties, movePriors, false);
+    }
+
+    /**
+     * Helper function to fromProperties and fromPropertiesOrDefaults.
+     * @param strict whether an invalid parameter is an error rather than replaced by its default
+     */
+    private static SearchConfiguration fromProperties (Properties properties,
+                                                       Heuristics.MovePriors movePriors,
+                                                       boolean strict) {
+        SearchConfiguration defaults = new SearchConfiguration(movePriors);
+        return new SearchConfiguration(
+                defaults.moveFilter,
+                new Heuristics.CoalitionReduction(
+                        getDouble(properties, COALITION_REDUCTION_PROPERTY, defaults.coalitionReduction.getR(), strict)
+                ),
+                new Heuristics.ExplorationCoefficient(
+                        getDouble(properties, EXPLORATION_MRX_PROPERTY, defaults.explorationCoefficient.getMrXCoefficient(), strict),
+                        getDouble(properties, EXPLORATION_DETECTIVE_PROPERTY, defaults.explorationCoefficient.getDetectiveCoefficient(), strict)
+                ),
+                new Heuristics.ProgressiveWidening(
+                        getDouble(properties, WIDENING_COEFFICIENT_PROPERTY, defaults.progressiveWidening.getCoefficient(), strict),
+                        getDouble(properties, WIDENING_EXPONENT_PROPERTY, defaults.progressiveWidening.getExponent(), strict)
+                ),
+                movePriors.withParameters(
+                        getDouble(properties, PRIOR_TEMPERATURE_PROPERTY, movePriors.getTemperature(), strict),
+                        getDouble(properties, DOUBLE_MOVE_PENALTY_PROPERTY, movePriors.getDoubleMovePenalty(), strict)
+                ),
+                new Heuristics.Rave(
+                        getBoolean(properties, RAVE_ENABLED_PROPERTY, defaults.rave.isEnabled(), strict),
+                        getDouble(properties, RAVE_EQUIVALENCE_PROPERTY, defaults.rave.getEquivalence(), strict)
+                ),
+                new Heuristics.EGreedyPlayouts(
+                        getDouble(properties, EPSILON_PROPERTY, defaults.eGreedyPlayouts.getEpsilon(), strict)
+                )
+        );
+    }
+
+    /**
+     * Reads a profile of parameters.
+     * @param file Properties file written by {@link #saveProfile}
+     * @return Parameters in the profile.
+     * @throws IOException if the file can't be read
+     */
+    public static Properties loadProfile (File file) throws IOException {
+        Properties profile = new Properties();
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            profile.load(reader);
+        }
+        return profile;
+    }
+
+    /**
+     * Writes a profile of parameters, which can be loaded with {@link #loadProfile}.
+     * @param profile Parameters to write
+     * @param file File to write to, replacing it if it exists
+     * @param comment Comment written at the top of the file
+     * @throws IOException if the file can't be written
+     */
+    public static void saveProfile (Properties profile, File file, String comment) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            profile.store(writer, comment);
+        }
+    }
+
+    /**
+     * @return Every parameter of the configuration, in the form read by {@link #fromProperties}.
+     */
+    public Properties toProperties () {
+        Properties properties = new Properties();
+        properties.setProperty(EXPLORATION_MRX_PROPERTY, Double.toString(this.explorationCoefficient.getMrXCoefficient()));
+        properties.setProperty(EXPLORATION_DETECTIVE_PROPERTY, Double.toString(this.explorationCoefficient.getDetectiveCoefficient()));
+        properties.setProperty(WIDENING_COEFFICIENT_PROPERTY, Double.toString(this.progressiveWidening.getCoefficient()));
+        properties.setProperty(WIDENING_EXPONENT_PROPERTY, Double.toString(this.progressiveWidening.getExponent()));
+        properties.setProperty(RAVE_ENABLED_PROPERTY, Boolean.toString(this.rave.isEnabled()));
+        properties.setProperty(RAVE_EQUIVALENCE_PROPERTY, Double.toString(this.rave.getEquivalence()));
+        properties.setProperty(COALITION_REDUCTION_PROPERTY, Double.toString(this.coalitionReduction.getR()));
+        properties.setProperty(EPSILON_PROPERTY, Double.toString(this.eGreedyPlayouts.getEpsilon()));
+        properties.setProperty(PRIOR_TEMPERATURE_PROPERTY, Double.toString(this.movePriors.getTemperature()));
+        properties.setProperty(DOUBLE_MOVE_PENALTY_PROPERTY, Double.toString(this.movePriors.getDoubleMovePenalty()));
+        return properties;
+    }
+
+    /**
+     * Helper function to fromProperties.
+     * @return Value of the property, or the default if it isn't set or isn't a finite number and
+     * strict is false.
+     * @throws IllegalArgumentException if strict and the property isn't a finite number
+     */
+    private static double getDouble (Properties properties, String key, double defaultValue, boolean strict) {
+        String value = properties.getProperty(key);
+        if (value == null) return defaultValue;
+        try {
+            double parsed = Double.parseDouble(value.trim());
+            if (Double.isFinite(parsed)) return parsed;
+        } catch (NumberFormatException ignored) {}
+        SearchConfiguration.handleInvalid(key, value, Double.toString(defaultValue), strict);
+        return defaultValue;
+    }
+
+    /**
+     * Helper function to fromProperties. Only "true" and "false" are accepted, ignoring case, so that
+     * a misspelt value isn't read as false.
+     * @return Value of the property, or the default if it isn't set or is invalid and strict is false.
+     * @throws IllegalArgumentException if strict and the property is neither true nor false
+     */
+    private static boolean getBoolean (Properties properties, String key, boolean defaultValue, boolean strict) {
+        String value = properties.getProperty(key);
+        if (value == null) return defaultValue;
+        if (value.trim().equalsIgnoreCase("true")) return true;
+        if (value.trim().equalsIgnoreCase("false")) return false;
+        SearchConfiguration.handleInvalid(key, value, Boolean.toString(defaultValue), strict);
+        return defaultValue;
+    }
+
+    /**
+     * Helper function to getDouble and getBoolean.
+     * @throws IllegalArgumentException if strict, otherwise reports that the default is used instead
+     */
+    private static void handleInvalid (String key, String value, String defaultValue, boolean strict) {
+        if (strict) throw new IllegalArgumentException("Invalid value for " + key + ": " + value);
+        System.err.println("Invalid value for " + key + ": " + value + ", using the default of " + defaultValue + ".");
+    }
+
+    public Heuristics.MoveFiltering getMoveFilter () {
+        return this.moveFilter;
+    }
+
+    public Heuristics.CoalitionReduction getCoalitionReduction () {
+        return this.coalitionReduction;
+    }
+
+    public Heuristics.ExplorationCoefficient getExplorationCoefficient () {
+        return this.explorationCoefficient;
+    }
+
+    public Heuristics.ProgressiveWidening getProgressiveWidening () {
+        return this.progressiveWidening;
+    }
+
+    public Heuristics.MovePriors getMovePriors () {
+        return this.movePriors;
+    }
+
+    public Heuristics.Rave getRave () {
+        return this.rave;
+    }
+
+    public Heuristics.EGreedyPlayouts getEGreedyPlayouts () {
+        return this.eGreedyPlayouts;
+    }
+}
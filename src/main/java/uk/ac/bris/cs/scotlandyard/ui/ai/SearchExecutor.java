@@ -0,0 +1,174 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.util.BitSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread pool shared by every search in the JVM, so that running several AIs or games at once
+ * doesn't create a pool for each of them.
+ * Each user acquires a handle, and the pool is shut down once every handle has been released.
+ * The number of threads can be set with the {@value #THREADS_PROPERTY} system property. The
+ * {@value #CORES_PROPERTY} property (e.g. "0-3,6") sizes the pool for a subset of cores; Java can't
+ * pin threads to cores itself, so the process should also be started on those cores (e.g. with
+ * taskset) to keep the search on them.
+ */
+public class SearchExecutor {
+    public static final String THREADS_PROPERTY = "scotlandyard.ai.threads";
+    public static final String CORES_PROPERTY = "scotlandyard.ai.cores";
+
+    private static ExecutorService executorService;
+    private static int parallelism;
+    private static int references = 0;
+
+    private boolean released = false;
+
+    /**
+     * Search worker which is skipped if it hasn't started by the time it is awaited, since it may be
+     * queued behind the workers of other searches using the pool.
+     */
+    public static class Worker extends FutureTask<Void> {
+        final private AtomicBoolean started = new AtomicBoolean(false);
+
+        private Worker (Runnable search) {
+            super(search, null);
+        }
+
+        @Override
+        public void run () {
+            if (this.started.compareAndSet(false, true)) super.run();
+        }
+
+        /**
+         * Cancels the worker if it hasn't started. A worker which has started is left to finish.
+         * @return true if the worker was cancelled, in which case it never runs.
+         */
+        boolean cancelIfNotStarted () {
+            if (!this.started.compareAndSet(false, true)) return false;
+            this.cancel(false);
+            return true;
+        }
+    }
+
+    private SearchExecutor () {}
+
+    /**
+     * Gets a handle to the shared pool, creating the pool if no handles are held.
+     * @return Handle which must be released once the search is no longer needed.
+     */
+    public static synchronized SearchExecutor acquire () {
+        if (references == 0) {
+            parallelism = SearchExecutor.getConfiguredParallelism();
+            executorService = Executors.newFixedThreadPool(parallelism, SearchExecutor.createThreadFactory());
+        }
+        references++;
+        return new SearchExecutor();
+    }
+
+    /**
+     * Releases the handle, shutting down the pool if it was the last one held.
+     * Any search using the handle must have finished before it is released.
+     */
+    public void release () {
+        synchronized (SearchExecutor.class) {
+            if (this.released) return;
+            this.released = true;
+
+            references--;
+            if (references == 0) {
+                executorService.shutdown();
+                executorService = null;
+            }
+        }
+    }
+
+    /**
+     * @return The shared pool.
+     * @throws IllegalStateException if the handle has been released
+     */
+    public ExecutorService getExecutorService () {
+        synchronized (SearchExecutor.class) {
+            if (this.released) throw new IllegalStateException("Search executor already released");
+            return executorService;
+        }
+    }
+
+    /**
+     * Submits a search worker to the shared pool.
+     * @param search Search to run until it is stopped
+     * @return Worker, to be awaited with {@link PlayerAI#awaitWorkers}.
+     * @throws IllegalStateException if the handle has been released
+     */
+    public Worker submitWorker (Runnable search) {
+        Worker worker = new Worker(search);
+        this.getExecutorService().execute(worker);
+        return worker;
+    }
+
+    /**
+     * Splits the threads evenly between the handles held, so that concurrent games don't queue
+     * behind each other's searches.
+     * @return Number of workers a single search should submit.
+     */
+    public int getWorkerCount () {
+        synchronized (SearchExecutor.class) {
+            return Math.max(1, parallelism / Math.max(1, references));
+        }
+    }
+
+    /**
+     * Helper function to acquire. Reads the number of threads from the system properties, falling
+     * back to the number of available processors.
+     * @return Number of threads in the pool.
+     */
+    private static int getConfiguredParallelism () {
+        int processors = Runtime.getRuntime().availableProcessors();
+        String threads = System.getProperty(THREADS_PROPERTY);
+        String cores = System.getProperty(CORES_PROPERTY);
+
+        try {
+            if (threads != null) return Math.max(1, Integer.parseInt(threads.trim()));
+            if (cores != null) return Math.max(1, Math.min(processors, SearchExecutor.parseCores(cores).cardinality()));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid search thread configuration, using " + processors + " threads.");
+        }
+        return processors;
+    }
+
+    /**
+     * Parses a list of cores, such as "0-3,6".
+     * @param cores Comma separated cores or ranges of cores
+     * @return Set of cores in the list.
+     * @throws IllegalArgumentException if the list can't be parsed
+     */
+    static BitSet parseCores (String cores) {
+        BitSet coreSet = new BitSet();
+        for (String part : cores.split(",")) {
+            String[] range = part.trim().split("-");
+            if (range.length > 2) throw new IllegalArgumentException("Invalid core range: " + part);
+
+            int start = Integer.parseInt(range[0].trim());
+            int end = range.length == 2 ? Integer.parseInt(range[1].trim()) : start;
+            if (start < 0 || end < start) throw new IllegalArgumentException("Invalid core range: " + part);
+            coreSet.set(start, end + 1);
+        }
+        return coreSet;
+    }
+
+    /**
+     * Helper function to acquire. Threads are named so that they can be told apart in profilers,
+     * and are daemons so that they never keep the JVM running.
+     */
+    private static ThreadFactory createThreadFactory () {
+        AtomicInteger threadCount = new AtomicInteger(0);
+        return runnable -> {
+            Thread thread = new Thread(runnable, "mcts-search-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,73 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+import io.atlassian.fugue.Pair;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how much of the time allowed for a move the search should use.
+ * Every move has its own time limit, so time can't be carried between rounds. Instead, rounds
+ * that matter less use a fraction of their limit and important rounds use all of it.
+ */
+public class TimeManager {
+    /**
+     * Fraction of the time limit used on the least important rounds.
+     */
+    final static double MINIMUM_IMPORTANCE = 0.5;
+
+    /**
+     * Rounds left in the game at which every move is treated as important.
+     */
+    final static int ENDGAME_ROUNDS = 3;
+
+    /**
+     * Number of possible locations at or below which detective moves are treated as important.
+     */
+    final static int FEW_POSSIBLE_LOCATIONS = 10;
+
+    final private long buffer;
+
+    /**
+     * @param buffer Time in milliseconds kept back from every time limit.
+     */
+    public TimeManager(long buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Calculates how important the current round is to the outcome of the game.
+     * For Mr X, moves on and just before reveal rounds decide whether he can be cornered after being
+     * revealed. For detectives, moves matter more the fewer locations Mr X could be in.
+     * @param gameState Game state the move is made from
+     * @param possibleLocations Possible locations of Mr X
+     * @return Importance of the round between {@link #MINIMUM_IMPORTANCE} and 1.
+     */
+    public double getImportance(AIGameState gameState, PossibleLocations possibleLocations) {
+        ImmutableList<Boolean> reveals = gameState.getSetup().moves;
+        int round = gameState.getMrXTravelLog().size();
+        if (reveals.size() - round <= ENDGAME_ROUNDS) return 1.0;
+
+        if (gameState.getAvailableMoves().asList().get(0).commencedBy().isMrX()) {
+            boolean revealSoon = reveals.get(round) || (round + 1 < reveals.size() && reveals.get(round + 1));
+            return revealSoon ? 1.0 : MINIMUM_IMPORTANCE;
+        }
+
+        double closeness = Math.min(1.0, (double) FEW_POSSIBLE_LOCATIONS / possibleLocations.getLocations().size());
+        return MINIMUM_IMPORTANCE + (1 - MINIMUM_IMPORTANCE) * closeness;
+    }
+
+    /**
+     * Calculates the time the search should run for this move.
+     * @param gameState Game state the move is made from
+     * @param possibleLocations Possible locations of Mr X
+     * @param timeoutPair Maximum time allowed by game for AI to run.
+     * @return Time to search for in milliseconds.
+     */
+    public long getTimeForMove(AIGameState gameState,
+                               PossibleLocations possibleLocations,
+                               Pair<Long, TimeUnit> timeoutPair) {
+        long available = Math.max(0, timeoutPair.right().toMillis(timeoutPair.left()) - this.buffer);
+        return (long) (available * this.getImportance(gameState, possibleLocations));
+    }
+}
@@ -0,0 +1,98 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import uk.ac.bris.cs.scotlandyard.model.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.*;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.*;
+
+/**
+ * Tests that AI game states follow the game's rules for whose turn it is and who has won, in
+ * positions where the order the rules are checked in matters.
+ */
+public class AIGameStateRulesTest extends AITestBase {
+
+    /**
+     * Helper function to the tests.
+     * @return The move in the list with the given piece and destination.
+     */
+    private static Move getMove (ImmutableSet<Move> moves, Piece piece, int destination) {
+        return moves.stream()
+                .filter(m -> m.commencedBy().equals(piece))
+                .filter(m -> m instanceof Move.SingleMove singleMove && singleMove.destination == destination)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    //A detective who can't move when the detectives' turn starts must still be able to move once
+    //another detective frees its way
+    @Test public void testBlockedDetectiveMovesOnceFreed(){
+        //RED's only neighbours, 10 and 20, are occupied by BLUE and GREEN
+        Player mrX = new Player(MRX, defaultMrXTickets(), 100);
+        ImmutableList<Player> detectives = ImmutableList.of(
+                new Player(RED, defaultDetectiveTickets(), 2),
+                new Player(BLUE, defaultDetectiveTickets(), 10),
+                new Player(GREEN, defaultDetectiveTickets(), 20)
+        );
+        Board.GameState modelState = getGameStateFactory().build(standard24MoveSetup(), mrX, detectives);
+        AIGameState aiGameState = aiGameStateFactory().build(standard24MoveSetup(), mrX, detectives);
+
+        Move mrXMove = modelState.getAvailableMoves().asList().get(0);
+        modelState = modelState.advance(mrXMove);
+        aiGameState = aiGameState.advance(mrXMove);
+        assertThat(aiGameState.getAvailableMoves()).isEqualTo(modelState.getAvailableMoves());
+        assertThat(aiGameState.getAvailableMoves()).noneMatch(m -> m.commencedBy().equals(RED));
+
+        Move blueMove = getMove(modelState.getAvailableMoves(), BLUE, 11);
+        modelState = modelState.advance(blueMove);
+        aiGameState = aiGameState.advance(blueMove);
+        assertThat(aiGameState.getAvailableMoves()).isEqualTo(modelState.getAvailableMoves());
+        assertThat(aiGameState.getAvailableMoves()).anyMatch(m -> m.commencedBy().equals(RED));
+    }
+
+    //Mr X must win once the last round ends, even if a detective lands on him with its last move
+    @Test public void testFullLogWinsOverCapture(){
+        GameSetup oneRoundSetup = new GameSetup(standardGraph(), ImmutableList.of(false));
+        Player mrX = new Player(MRX, defaultMrXTickets(), 2);
+        ImmutableList<Player> detectives = ImmutableList.of(new Player(RED, defaultDetectiveTickets(), 11));
+        Board.GameState modelState = getGameStateFactory().build(oneRoundSetup, mrX, detectives);
+        AIGameState aiGameState = aiGameStateFactory().build(oneRoundSetup, mrX, detectives);
+
+        for (Move move : new Move[]{
+                getMove(modelState.getAvailableMoves(), MRX, 10),
+                new Move.SingleMove(RED, 11, Ticket.TAXI, 10)}) {
+            modelState = modelState.advance(move);
+            aiGameState = aiGameState.advance(move);
+        }
+
+        assertThat(modelState.getWinner()).containsExactly(MRX);
+        assertThat(aiGameState.getWinner()).isEqualTo(modelState.getWinner());
+    }
+
+    //Mr X must win once the detectives can't move, even if a detective lands on him with its last ticket
+    @Test public void testStuckDetectivesWinOverCapture(){
+        Player mrX = new Player(MRX, defaultMrXTickets(), 2);
+        ImmutableList<Player> detectives = ImmutableList.of(new Player(
+                RED,
+                ImmutableMap.of(Ticket.TAXI, 1, Ticket.BUS, 0, Ticket.UNDERGROUND, 0, Ticket.DOUBLE, 0, Ticket.SECRET, 0),
+                11
+        ));
+        Board.GameState modelState = getGameStateFactory().build(standard24MoveSetup(), mrX, detectives);
+        AIGameState aiGameState = aiGameStateFactory().build(standard24MoveSetup(), mrX, detectives);
+
+        for (Move move : new Move[]{
+                getMove(modelState.getAvailableMoves(), MRX, 10),
+                new Move.SingleMove(RED, 11, Ticket.TAXI, 10)}) {
+            modelState = modelState.advance(move);
+            aiGameState = aiGameState.advance(move);
+        }
+
+        assertThat(modelState.getWinner()).containsExactly(MRX);
+        assertThat(aiGameState.getWinner()).isEqualTo(modelState.getWinner());
+    }
+}
@@ -0,0 +1,198 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.atlassian.fugue.Pair;
+import org.junit.Test;
+import uk.ac.bris.cs.scotlandyard.model.*;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.*;
+
+/**
+ * Tests that AI game states follow the same rules as the game model, by playing random games with
+ * both and comparing them after every move.
+ */
+public class AIGameStateTest extends AITestBase {
+
+    /**
+     * Helper function to the tests. Plays random games from random starting locations, advancing a
+     * model game state and an AI game state with the same moves.
+     * @param games Number of games to play
+     * @param seed Seed of the games
+     * @param onState Called with the model and AI game states before every move and at the end
+     */
+    private static void playRandomGames (int games, long seed, BiConsumer<Board.GameState, AIGameState> onState) {
+        Random random = new Random(seed);
+        for (int game = 0; game < games; game++) {
+            ImmutableList<Integer> detectiveLocations = generateDetectiveLocations(random.nextInt(), 5);
+            Player mrX = new Player(Piece.MrX.MRX, defaultMrXTickets(), generateMrXLocation(random.nextInt()));
+            ImmutableList.Builder<Player> detectives = ImmutableList.builder();
+            for (int i = 0; i < detectiveLocations.size(); i++) {
+                detectives.add(new Player(Piece.Detective.values()[i], defaultDetectiveTickets(), detectiveLocations.get(i)));
+            }
+
+            Board.GameState modelState = getGameStateFactory().build(standard24MoveSetup(), mrX, detectives.build());
+            AIGameState aiGameState = aiGameStateFactory().build(standard24MoveSetup(), mrX, detectives.build());
+            while (true) {
+                onState.accept(modelState, aiGameState);
+                if (!modelState.getWinner().isEmpty()) break;
+
+                List<Move> moves = modelState.getAvailableMoves().asList();
+                Move move = moves.get(random.nextInt(moves.size()));
+                modelState = modelState.advance(move);
+                aiGameState = aiGameState.advance(move);
+            }
+        }
+    }
+
+    /**
+     * Helper function to the tests.
+     * @return Moves of each piece, in the order they are given.
+     */
+    private static Map<Piece, List<Move>> getMovesByPiece (List<Move> moves) {
+        Map<Piece, List<Move>> movesByPiece = new HashMap<>();
+        for (Move move : moves) {
+            movesByPiece.computeIfAbsent(move.commencedBy(), p -> new ArrayList<>()).add(move);
+        }
+        return movesByPiece;
+    }
+
+    /**
+     * Helper function to the tests. AI game states generate each player's single moves before their
+     * double moves, rather than after each first move as the model does, and otherwise keep the
+     * model's order.
+     * @return Moves of the model in the order expected from an AI game state.
+     */
+    private static List<Move> getSingleMovesFirst (Board board) {
+        List<Move> moves = new ArrayList<>();
+        for (Move move : board.getAvailableMoves()) {
+            if (move instanceof Move.SingleMove) moves.add(move);
+        }
+        for (Move move : board.getAvailableMoves()) {
+            if (move instanceof Move.DoubleMove) moves.add(move);
+        }
+        return moves;
+    }
+
+    /**
+     * Helper function to the tests. Checks every view of the board the game is played with.
+     */
+    private static void assertSameBoard (Board expected, Board actual) {
+        assertThat(actual.getPlayers()).isEqualTo(expected.getPlayers());
+        assertThat(actual.getMrXTravelLog()).isEqualTo(expected.getMrXTravelLog());
+        for (Piece.Detective detective : Piece.Detective.values()) {
+            assertThat(actual.getDetectiveLocation(detective)).isEqualTo(expected.getDetectiveLocation(detective));
+        }
+        for (Piece piece : List.of(Piece.MrX.MRX, Piece.Detective.RED, Piece.Detective.GREEN,
+                Piece.Detective.BLUE, Piece.Detective.WHITE, Piece.Detective.YELLOW)) {
+            Optional<Board.TicketBoard> expectedTickets = expected.getPlayerTickets(piece);
+            Optional<Board.TicketBoard> actualTickets = actual.getPlayerTickets(piece);
+            assertThat(actualTickets.isPresent()).isEqualTo(expectedTickets.isPresent());
+            if (expectedTickets.isEmpty()) continue;
+
+            for (Ticket ticket : Ticket.values()) {
+                assertThat(actualTickets.get().getCount(ticket)).isEqualTo(expectedTickets.get().getCount(ticket));
+            }
+        }
+    }
+
+    //Available moves and winners must match the model, and each piece's moves must be in the model's order
+    @Test public void testAvailableMovesMatchModel(){
+        playRandomGames(300, 1, (modelState, aiGameState) -> {
+            assertThat(aiGameState.getWinner()).isEqualTo(modelState.getWinner());
+            assertThat(aiGameState.getAvailableMoves()).isEqualTo(modelState.getAvailableMoves());
+            assertThat(getMovesByPiece(aiGameState.getAvailableMoves().asList()))
+                    .isEqualTo(getMovesByPiece(getSingleMovesFirst(modelState)));
+        });
+    }
+
+    //Mr X's double moves from every location must match the model, including when he has only one
+    //of a ticket so can't use it for both moves
+    @Test public void testDoubleMovesMatchModel(){
+        List<ImmutableMap<Ticket, Integer>> ticketCounts = List.of(
+                defaultMrXTickets(),
+                ImmutableMap.of(Ticket.TAXI, 1, Ticket.BUS, 1, Ticket.UNDERGROUND, 1, Ticket.DOUBLE, 1, Ticket.SECRET, 1),
+                ImmutableMap.of(Ticket.TAXI, 2, Ticket.BUS, 0, Ticket.UNDERGROUND, 0, Ticket.DOUBLE, 1, Ticket.SECRET, 0)
+        );
+        ImmutableList<Player> detectives = ImmutableList.of(
+                new Player(Piece.Detective.RED, defaultDetectiveTickets(), 13),
+                new Player(Piece.Detective.BLUE, defaultDetectiveTickets(), 67),
+                new Player(Piece.Detective.GREEN, defaultDetectiveTickets(), 89)
+        );
+
+        for (ImmutableMap<Ticket, Integer> tickets : ticketCounts) {
+            for (int location : standardGraph().nodes()) {
+                if (detectives.stream().anyMatch(d -> d.location() == location)) continue;
+
+                Player mrX = new Player(Piece.MrX.MRX, tickets, location);
+                Board.GameState modelState = getGameStateFactory().build(standard24MoveSetup(), mrX, detectives);
+                AIGameState aiGameState = aiGameStateFactory().build(standard24MoveSetup(), mrX, detectives);
+
+                assertThat(aiGameState.getAvailableMoves().asList()).isEqualTo(getSingleMovesFirst(modelState));
+            }
+        }
+    }
+
+    //Players, tickets, locations and the log must match the model, and a state's views must not
+    //change when it is advanced
+    @Test public void testBoardViewsMatchModel(){
+        playRandomGames(100, 2, (modelState, aiGameState) -> {
+            assertSameBoard(modelState, aiGameState);
+            if (!modelState.getWinner().isEmpty()) return;
+
+            aiGameState.advance(aiGameState.getAvailableMoves().asList().get(0));
+            assertSameBoard(modelState, aiGameState);
+        });
+    }
+
+    //Detective states copied from the first state must match states built in full for the same
+    //location, both as they are and after a move
+    @Test public void testCopiedDetectiveStatesMatchFullBuilds(){
+        PossibleLocations allLocations = getFixedLocations(standardGraph().nodes());
+        playRandomGames(2, 3, (modelState, aiGameState) -> {
+            if (!modelState.getWinner().isEmpty()) return;
+            if (modelState.getAvailableMoves().asList().get(0).commencedBy().isMrX()) return;
+
+            for (Pair<AIGameState, Integer> copied : aiGameStateFactory().buildDetectiveGameStates(modelState, allLocations)) {
+                AIGameState built = aiGameStateFactory()
+                        .buildDetectiveGameStates(modelState, getFixedLocations(List.of(copied.right())))
+                        .get(0)
+                        .left();
+
+                assertThat(copied.left().getMrXLocation()).isEqualTo(copied.right());
+                assertThat(copied.left().getWinner()).isEqualTo(built.getWinner());
+                assertThat(copied.left().getAvailableMoves().asList()).isEqualTo(built.getAvailableMoves().asList());
+                assertThat(copied.left().getGameStateList()).isEqualTo(built.getGameStateList());
+                assertSameBoard(built, copied.left());
+                if (!built.getWinner().isEmpty()) continue;
+
+                Move move = built.getAvailableMoves().asList().get(0);
+                AIGameState copiedAdvanced = copied.left().advance(move);
+                AIGameState builtAdvanced = built.advance(move);
+                assertThat(copiedAdvanced.getWinner()).isEqualTo(builtAdvanced.getWinner());
+                assertThat(copiedAdvanced.getAvailableMoves().asList()).isEqualTo(builtAdvanced.getAvailableMoves().asList());
+                assertSameBoard(builtAdvanced, copiedAdvanced);
+            }
+        });
+    }
+
+    //A detective state built for one location must match the state built for it among all locations
+    @Test public void testSingleDetectiveStateMatchesAllStates(){
+        PossibleLocations allLocations = getFixedLocations(standardGraph().nodes());
+        playRandomGames(2, 4, (modelState, aiGameState) -> {
+            if (!modelState.getWinner().isEmpty()) return;
+            if (modelState.getAvailableMoves().asList().get(0).commencedBy().isMrX()) return;
+
+            for (Pair<AIGameState, Integer> expected : aiGameStateFactory().buildDetectiveGameStates(modelState, allLocations)) {
+                AIGameState built = aiGameStateFactory().buildDetectiveGameState(modelState, expected.right());
+                assertThat(built.getWinner()).isEqualTo(expected.left().getWinner());
+                assertThat(built.getAvailableMoves().asList()).isEqualTo(expected.left().getAvailableMoves().asList());
+                assertThat(built.getMrXLocation()).isEqualTo(expected.right());
+            }
+        });
+    }
+}
@@ -10,6 +10,8 @@ import uk.ac.bris.cs.scotlandyard.model.*;
 import javax.annotation.Nonnull;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Random;
 
 import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
 import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
@@ -63,9 +65,7 @@ public class AITestBase {
                 new Node(
                         detectiveGameState,
                         possibleLocations,
-                        new Heuristics.MoveFiltering(),
-                        new Heuristics.CoalitionReduction(),
-                        new Heuristics.ExplorationCoefficient()
+                        new SearchConfiguration(new Heuristics.MovePriors())
                 );
         return newNode;
     }
@@ -99,17 +99,72 @@ public class AITestBase {
                 new Node(
                         detectiveGameState,
                         rootNode,
-                        rootNode,
                         previousMove,
-                        possibleLocations,
-                        new Heuristics.MoveFiltering(),
-                        new Heuristics.CoalitionReduction(),
-                        new Heuristics.ExplorationCoefficient()
+                        possibleLocations
                 );
 
         return newNode;
     }
 
+    /**
+     * Used for standardized testing.
+     * The game state used is turn 0 with MrX at 35 + detective RED at 50. (Mr X to move)
+     * */
+    public static Board.GameState constructStandardGameState(){
+        return MyGameStateFactory.a(
+                standard24MoveSetup(),
+                new Player(MRX, defaultMrXTickets(), 35),
+                ImmutableList.of(new Player(RED, defaultDetectiveTickets(), 50))
+        );
+    }
+
+    /**
+     * Used for standardized testing.
+     * @param ticket Ticket Mr X uses to move from 35 in the standard game state
+     * @param destination Location Mr X moves to
+     * @return Possible locations after Mr X's first move. (Detective RED to move)
+     * */
+    public static PossibleLocations constructPossibleLocationsAfterMove(Ticket ticket, int destination){
+        Board.GameState gameState = constructStandardGameState()
+                .advance(new Move.SingleMove(MRX, 35, ticket, destination));
+        PossibleLocations possibleLocations = getPossibleLocationsFactory().buildInitialLocations();
+        return possibleLocations.updateLocations(gameState);
+    }
+
+    /**
+     * Used for standardized testing.
+     * @return Possible locations fixed to the given locations, each equally likely.
+     */
+    public static PossibleLocations getFixedLocations (Collection<Integer> locations) {
+        ImmutableSet<Integer> locationSet = ImmutableSet.copyOf(locations);
+        return new PossibleLocations() {
+            @Override
+            public PossibleLocations updateLocations (Board board) {
+                return this;
+            }
+
+            @Override
+            public ImmutableSet<Integer> getLocations () {
+                return locationSet;
+            }
+
+            @Override
+            public double getProbability (int location) {
+                return locationSet.contains(location) ? 1.0 / locationSet.size() : 0;
+            }
+
+            @Override
+            public int sample (Random random) {
+                return locationSet.asList().get(random.nextInt(locationSet.size()));
+            }
+
+            @Nonnull @Override
+            public Integer getTurn () {
+                return 0;
+            }
+        };
+    }
+
     public static DistancesSingleton getDistancesSingleton() {return distancesSingleton;}
 
     public static MyGameStateFactory getGameStateFactory () {
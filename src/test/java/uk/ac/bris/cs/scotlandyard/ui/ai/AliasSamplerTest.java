@@ -0,0 +1,40 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Tests sampling in proportion to weights with alias tables.
+ */
+public class AliasSamplerTest {
+
+    //Indices must be sampled close to their share of the total weight
+    @Test public void testSampleFrequencies(){
+        double[] weights = {1, 0, 3, 6};
+        AliasSampler sampler = new AliasSampler(weights);
+        Random random = new Random(0);
+
+        int samples = 100_000;
+        int[] counts = new int[weights.length];
+        for (int i = 0; i < samples; i++) {
+            counts[sampler.sample(random)]++;
+        }
+
+        assertThat(counts[1]).isZero();
+        assertThat((double) counts[0] / samples).isCloseTo(0.1, within(0.01));
+        assertThat((double) counts[2] / samples).isCloseTo(0.3, within(0.01));
+        assertThat((double) counts[3] / samples).isCloseTo(0.6, within(0.01));
+    }
+
+    //Weights which can't be sampled from must be rejected
+    @Test public void testInvalidWeights(){
+        assertThatThrownBy(() -> new AliasSampler(new double[0])).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new AliasSampler(new double[]{0, 0})).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new AliasSampler(new double[]{1, -1})).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -17,6 +17,20 @@ Adapted for use in the open task.
         PossibleLocationsTest.class,
         HeuristicsTest.class,
         DistancesTest.class,
-        NodeTest.class
+        NodeTest.class,
+        AIGameStateRulesTest.class,
+        ArenaTest.class,
+        AliasSamplerTest.class,
+        SearchConfigurationTest.class,
+        BinaryDataSetTest.class,
+        GameRecordsTest.class,
+        AIGameStateTest.class,
+        GameSimulatorTest.class,
+        PlayerAITest.class,
+        PondererTest.class,
+        TimeManagerTest.class,
+        ConcurrentGameRunnerTest.class,
+        MinDistanceDataTest.class,
+        GenerateDataSetTest.class
 })
 public class AllTest {}
@@ -0,0 +1,60 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import io.atlassian.fugue.Pair;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Tests the statistics used to compare configurations in the arena.
+ */
+public class ArenaTest {
+
+    //Interval must contain the observed proportion and stay within [0, 1]
+    @Test public void testWilsonIntervalBounds(){
+        for (long wins = 0; wins <= 10; wins++) {
+            Pair<Double, Double> interval = Arena.getWilsonInterval(wins, 10, 1.96);
+            assertThat(interval.left()).isBetween(0.0, wins / 10.0);
+            assertThat(interval.right()).isBetween(wins / 10.0, 1.0);
+        }
+    }
+
+    //Known value: 5 successes from 10 trials at 95% is 0.237 to 0.763
+    @Test public void testWilsonIntervalValue(){
+        Pair<Double, Double> interval = Arena.getWilsonInterval(5, 10, 1.96);
+        assertThat(interval.left()).isCloseTo(0.2366, within(0.001));
+        assertThat(interval.right()).isCloseTo(0.7634, within(0.001));
+    }
+
+    //Equal elo must give an expected score of a half
+    @Test public void testExpectedScore(){
+        assertThat(Arena.Sprt.getExpectedScore(0)).isCloseTo(0.5, within(1e-9));
+        assertThat(Arena.Sprt.getExpectedScore(100)).isGreaterThan(0.5);
+    }
+
+    //Consistently winning pairs must accept H1, and consistently losing pairs must accept H0
+    @Test public void testSprtDecisions(){
+        Arena.Sprt sprt = new Arena.Sprt(0, 50, 0.05, 0.05);
+
+        double winningLlr = sprt.getLogLikelihoodRatio(400, 400 * 0.75, 400 * (0.5 * 0.25 + 0.5 * 1.0));
+        assertThat(sprt.getDecision(winningLlr)).isEqualTo(Arena.Sprt.Decision.ACCEPT_H1);
+
+        double losingLlr = sprt.getLogLikelihoodRatio(400, 400 * 0.25, 400 * (0.5 * 0.25));
+        assertThat(sprt.getDecision(losingLlr)).isEqualTo(Arena.Sprt.Decision.ACCEPT_H0);
+
+        assertThat(sprt.getDecision(sprt.getLogLikelihoodRatio(0, 0, 0))).isEqualTo(Arena.Sprt.Decision.CONTINUE);
+    }
+
+    //A value must only be adopted if the SPRT accepts it or its score is above half with confidence,
+    //not just because it scored more than half
+    @Test public void testIsStronger(){
+        assertThat(Arena.isStronger(Arena.Sprt.Decision.ACCEPT_H1, 0, 0)).isTrue();
+        assertThat(Arena.isStronger(Arena.Sprt.Decision.ACCEPT_H0, 100, 100)).isFalse();
+        assertThat(Arena.isStronger(Arena.Sprt.Decision.CONTINUE, 6, 10)).isFalse();
+        assertThat(Arena.isStronger(Arena.Sprt.Decision.CONTINUE, 70, 100)).isTrue();
+
+        //11.5 from 16 pairs is above half with confidence only if the 32 games are counted as independent
+        assertThat(Arena.isStronger(Arena.Sprt.Decision.CONTINUE, 11.5, 16)).isFalse();
+    }
+}
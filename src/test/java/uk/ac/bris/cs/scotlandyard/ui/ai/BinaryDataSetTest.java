@@ -0,0 +1,94 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.*;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.*;
+
+/**
+ * Tests writing binary data sets with {@link GenerateDataSet} and reading them back.
+ */
+public class BinaryDataSetTest extends AITestBase {
+
+    /**
+     * Helper function to the tests. Mr X starts at 35 with five detectives.
+     */
+    private static AIGameState buildGameState () {
+        return aiGameStateFactory().build(
+                standard24MoveSetup(),
+                new Player(MRX, defaultMrXTickets(), 35),
+                ImmutableList.of(
+                        new Player(RED, defaultDetectiveTickets(), 50),
+                        new Player(GREEN, defaultDetectiveTickets(), 53),
+                        new Player(BLUE, defaultDetectiveTickets(), 91),
+                        new Player(WHITE, defaultDetectiveTickets(), 94),
+                        new Player(YELLOW, defaultDetectiveTickets(), 103)
+                )
+        );
+    }
+
+    /**
+     * Helper function to the tests. Appends a game of one Mr X move to the data set.
+     */
+    private static void writeGame (File file, AIGameState gameState, Move move) throws IOException {
+        try (GenerateDataSet dataSet = new GenerateDataSet(file.getPath(), GenerateDataSet.FlushPolicy.PER_GAME)) {
+            GameSimulator.GameObserver game = dataSet.forNewGame();
+            game.onGameTurn(gameState, move);
+            game.onGameWin(gameState);
+        }
+    }
+
+    //Every field written must be read back unchanged
+    @Test public void testRoundTrip() throws IOException {
+        File file = Files.createTempFile("dataset", ".bin").toFile();
+        try {
+            AIGameState gameState = buildGameState();
+            Move move = new Move.SingleMove(MRX, 35, Ticket.TAXI, 36);
+            writeGame(file, gameState, move);
+
+            try (BinaryDataSet.Reader reader = new BinaryDataSet.Reader(file)) {
+                assertThat(reader.size()).isEqualTo(1);
+                for (int field = 0; field < BinaryDataSet.NEW_MRX_LOCATION; field++) {
+                    assertThat(reader.get(0, field)).isEqualTo(gameState.getGameStateList().get(field));
+                }
+                assertThat(reader.get(0, BinaryDataSet.NEW_MRX_LOCATION)).isEqualTo(36);
+            }
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+
+    //A partly written record must be removed before appending, so appended records stay aligned
+    @Test public void testAppendAfterPartialRecord() throws IOException {
+        File file = Files.createTempFile("dataset", ".bin").toFile();
+        try {
+            AIGameState gameState = buildGameState();
+            writeGame(file, gameState, new Move.SingleMove(MRX, 35, Ticket.TAXI, 36));
+            try (OutputStream output = new FileOutputStream(file, true)) {
+                output.write(new byte[]{35, 50, 53, 91, 94});
+            }
+
+            writeGame(file, gameState, new Move.SingleMove(MRX, 35, Ticket.TAXI, 48));
+
+            assertThat(file.length()).isEqualTo(BinaryDataSet.HEADER_SIZE + 2L * BinaryDataSet.RECORD_SIZE);
+            try (BinaryDataSet.Reader reader = new BinaryDataSet.Reader(file)) {
+                assertThat(reader.size()).isEqualTo(2);
+                assertThat(reader.get(1, BinaryDataSet.MRX_LOCATION)).isEqualTo(35);
+                assertThat(reader.get(1, BinaryDataSet.NEW_MRX_LOCATION)).isEqualTo(48);
+            }
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+}
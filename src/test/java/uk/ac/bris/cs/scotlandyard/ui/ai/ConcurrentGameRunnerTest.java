@@ -0,0 +1,101 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests playing games at once with {@link ConcurrentGameRunner}.
+ */
+public class ConcurrentGameRunnerTest extends AITestBase {
+
+    /**
+     * Simulator which counts its games instead of playing them. Every game with the failing number
+     * throws.
+     */
+    private static class StubSimulator extends GameSimulator {
+        final private int failingGame;
+        final private AtomicInteger gamesStarted = new AtomicInteger(0);
+        final private AtomicInteger gamesFinished = new AtomicInteger(0);
+
+        StubSimulator (int failingGame) {
+            super(standard24MoveSetup(), aiGameStateFactory(), 1, 0);
+            this.failingGame = failingGame;
+        }
+
+        @Override
+        public void runGame () {
+            if (this.gamesStarted.incrementAndGet() == this.failingGame) {
+                throw new IllegalStateException("Stub game failed");
+            }
+            this.gamesFinished.incrementAndGet();
+        }
+    }
+
+    /**
+     * Helper function to the tests. Runs a task on the executor and shuts it down.
+     * @return Name of the thread the task ran on.
+     */
+    private static String getThreadName (ExecutorService gameExecutor) throws InterruptedException, ExecutionException {
+        try {
+            return gameExecutor.submit(() -> Thread.currentThread().getName()).get();
+        } finally {
+            gameExecutor.shutdown();
+            gameExecutor.awaitTermination(1, TimeUnit.SECONDS);
+        }
+    }
+
+    //Every game must be played exactly once, across all the game threads
+    @Test public void testPlaysEveryGame() throws InterruptedException {
+        StubSimulator gameSimulator = new StubSimulator(0);
+        new ConcurrentGameRunner(gameSimulator, 4).runGames(50);
+
+        assertThat(gameSimulator.gamesStarted.get()).isEqualTo(50);
+        assertThat(gameSimulator.gamesFinished.get()).isEqualTo(50);
+    }
+
+    //A game which throws must not stop the other games from being played
+    @Test public void testFailedGameDoesNotStopOthers() throws InterruptedException {
+        StubSimulator gameSimulator = new StubSimulator(3);
+        new ConcurrentGameRunner(gameSimulator, 2).runGames(20);
+
+        assertThat(gameSimulator.gamesStarted.get()).isEqualTo(20);
+        assertThat(gameSimulator.gamesFinished.get()).isEqualTo(19);
+    }
+
+    //A game which throws must not stop the other games when it is the only game thread
+    @Test public void testFailedGameWithOneThread() throws InterruptedException {
+        StubSimulator gameSimulator = new StubSimulator(1);
+        new ConcurrentGameRunner(gameSimulator, 1).runGames(5);
+
+        assertThat(gameSimulator.gamesStarted.get()).isEqualTo(5);
+        assertThat(gameSimulator.gamesFinished.get()).isEqualTo(4);
+    }
+
+    //At least one game must be played at once
+    @Test public void testNoConcurrentGames(){
+        assertThatThrownBy(() -> new ConcurrentGameRunner(new StubSimulator(0), 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    //Games must run on virtual threads from Java 21, which are unnamed, and on the named pool before
+    @Test public void testVirtualThreadLookup() throws InterruptedException, ExecutionException {
+        String threadName = getThreadName(ConcurrentGameRunner.createGameExecutor(2));
+
+        if (Runtime.version().feature() >= 21) assertThat(threadName).isEmpty();
+        else assertThat(threadName).startsWith("simulated-game-");
+    }
+
+    //Games must fall back to the pool of platform threads when virtual threads can't be found
+    @Test public void testFallbackPool() throws InterruptedException, ExecutionException {
+        String threadName = getThreadName(ConcurrentGameRunner.createGameExecutor(2, "missingExecutor"));
+
+        assertThat(threadName).startsWith("simulated-game-");
+    }
+}
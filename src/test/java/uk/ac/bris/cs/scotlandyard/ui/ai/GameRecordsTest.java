@@ -0,0 +1,138 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.*;
+
+/**
+ * Tests recording games with {@link GameRecorder} and reading them back with {@link GameRecords.Reader}.
+ */
+public class GameRecordsTest extends AITestBase {
+
+    /**
+     * Helper function to the tests. Mr X starts at 35 and RED at 50.
+     */
+    private static AIGameState buildGameState () {
+        return aiGameStateFactory().build(
+                standard24MoveSetup(),
+                new Player(MRX, defaultMrXTickets(), 35),
+                ImmutableList.of(new Player(RED, defaultDetectiveTickets(), 50))
+        );
+    }
+
+    /**
+     * Helper function to the tests. A double move by Mr X followed by a detective move.
+     */
+    private static List<Move> buildMoves () {
+        return List.of(
+                new Move.DoubleMove(MRX, 35, Ticket.TAXI, 36, Ticket.SECRET, 37),
+                new Move.SingleMove(RED, 50, Ticket.TAXI, 49)
+        );
+    }
+
+    /**
+     * Helper function to the tests. Appends a game to the file with a new recorder.
+     */
+    private static void recordGame (File file, long seed) throws IOException {
+        try (GameRecorder gameRecorder = new GameRecorder(file.getPath())) {
+            GameSimulator.GameObserver game = gameRecorder.forNewGame();
+            AIGameState gameState = buildGameState();
+            game.onGameStart(seed);
+            for (Move move : buildMoves()) {
+                game.onGameTurn(gameState, move);
+                gameState = gameState.advance(move);
+            }
+            game.onGameWin(gameState);
+        }
+    }
+
+    /**
+     * Helper function to the tests.
+     * @return Every game in the file.
+     */
+    private static List<GameRecords.RecordedGame> readGames (File file) throws IOException {
+        List<GameRecords.RecordedGame> games = new ArrayList<>();
+        try (GameRecords.Reader reader = new GameRecords.Reader(file, standard24MoveSetup(), aiGameStateFactory())) {
+            reader.forEachRemaining(games::add);
+        }
+        return games;
+    }
+
+    //Seed, starting state and moves written must be read back unchanged
+    @Test public void testRoundTrip() throws IOException {
+        File file = Files.createTempFile("games", ".bin").toFile();
+        try {
+            recordGame(file, 1);
+            recordGame(file, 2);
+
+            List<GameRecords.RecordedGame> games = readGames(file);
+            assertThat(games).hasSize(2);
+            assertThat(games.get(0).getSeed()).isEqualTo(1);
+            assertThat(games.get(1).getSeed()).isEqualTo(2);
+            for (GameRecords.RecordedGame game : games) {
+                assertThat(game.getMoves()).containsExactlyElementsOf(buildMoves());
+                assertThat(game.getInitialState().getMrXLocation()).isEqualTo(35);
+                assertThat(game.getInitialState().getDetectiveLocations()).containsExactly(50);
+                assertThat(game.getFinalState().getMrXLocation()).isEqualTo(37);
+            }
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+
+    //A partly written game must be ignored when reading, and removed before appending
+    @Test public void testAppendAfterPartialGame() throws IOException {
+        File file = Files.createTempFile("games", ".bin").toFile();
+        try {
+            recordGame(file, 1);
+            long completeLength = file.length();
+            try (DataOutputStream output = new DataOutputStream(new FileOutputStream(file, true))) {
+                output.writeInt(100);
+                output.write(new byte[]{0, 0, 0});
+            }
+            assertThat(readGames(file)).hasSize(1);
+
+            recordGame(file, 2);
+
+            assertThat(file.length()).isEqualTo(completeLength + (completeLength - GameRecords.HEADER_SIZE));
+            List<GameRecords.RecordedGame> games = readGames(file);
+            assertThat(games).hasSize(2);
+            assertThat(games.get(1).getSeed()).isEqualTo(2);
+            assertThat(games.get(1).getMoves()).containsExactlyElementsOf(buildMoves());
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+
+    //A negative length must be rejected rather than used to allocate the game
+    @Test public void testNegativeLengthRejected() throws IOException {
+        File file = Files.createTempFile("games", ".bin").toFile();
+        try {
+            recordGame(file, 1);
+            try (DataOutputStream output = new DataOutputStream(new FileOutputStream(file, true))) {
+                output.writeInt(-1);
+                output.write(new byte[16]);
+            }
+
+            assertThatThrownBy(() -> readGames(file)).isInstanceOf(UncheckedIOException.class);
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+}
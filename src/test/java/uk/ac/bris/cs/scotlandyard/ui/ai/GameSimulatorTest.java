@@ -0,0 +1,42 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import org.junit.Test;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.*;
+
+/**
+ * Tests simulating games with {@link GameSimulator}.
+ */
+public class GameSimulatorTest extends AITestBase {
+
+    /**
+     * Helper function to the tests. Plays a game with an iteration budget.
+     * @return Every move of the game.
+     */
+    private static List<Move> playGame (long seed) {
+        List<Move> moves = new ArrayList<>();
+        GameSimulator gameSimulator = new GameSimulator(standard24MoveSetup(), aiGameStateFactory(), 50, 0);
+        gameSimulator.registerObserver(new GameSimulator.GameObserver() {
+            @Override
+            public void onGameTurn (AIGameState aiGameState, Move move) {
+                moves.add(move);
+            }
+        });
+        gameSimulator.runGame(seed);
+        return moves;
+    }
+
+    //Games played with an iteration budget and the same seed must have the same moves
+    @Test public void testSameSeedSameGame(){
+        List<Move> first = playGame(1);
+        List<Move> second = playGame(1);
+
+        assertThat(first).isNotEmpty();
+        assertThat(second).isEqualTo(first);
+    }
+}
@@ -0,0 +1,236 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.*;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.*;
+
+/**
+ * Tests writing text and gzip compressed data sets with {@link GenerateDataSet} and reading them back
+ * with {@link Heuristics.MovePriors.TransitionModel}.
+ */
+public class GenerateDataSetTest extends AITestBase {
+    private static final Move MOVE_TO_36 = new Move.SingleMove(MRX, 35, Ticket.TAXI, 36);
+    private static final Move MOVE_TO_48 = new Move.SingleMove(MRX, 35, Ticket.TAXI, 48);
+
+    /**
+     * Helper function to the tests. Mr X starts at 35 with five detectives.
+     */
+    private static AIGameState buildGameState () {
+        return aiGameStateFactory().build(
+                standard24MoveSetup(),
+                new Player(MRX, defaultMrXTickets(), 35),
+                ImmutableList.of(
+                        new Player(RED, defaultDetectiveTickets(), 50),
+                        new Player(GREEN, defaultDetectiveTickets(), 53),
+                        new Player(BLUE, defaultDetectiveTickets(), 91),
+                        new Player(WHITE, defaultDetectiveTickets(), 94),
+                        new Player(YELLOW, defaultDetectiveTickets(), 103)
+                )
+        );
+    }
+
+    /**
+     * Helper function to the tests. Appends a game of one Mr X move to the data set.
+     */
+    private static void writeGame (File file, Move move) throws IOException {
+        try (GenerateDataSet dataSet = new GenerateDataSet(file.getPath(), GenerateDataSet.FlushPolicy.PER_GAME)) {
+            GameSimulator.GameObserver game = dataSet.forNewGame();
+            game.onGameTurn(buildGameState(), move);
+            game.onGameWin(buildGameState());
+        }
+    }
+
+    /**
+     * Helper function to the tests. Appends text to the end of the file.
+     */
+    private static void append (File file, String text) throws IOException {
+        Files.writeString(file.toPath(), text, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Helper function to the tests.
+     * @return Number of times the data set contains Mr X's move from 35 to the destination.
+     */
+    private static int countMoves (File file, int destination) throws IOException {
+        return (int) Heuristics.MovePriors.TransitionModel.buildFromDataSet(file).getWeight(35, destination) - 1;
+    }
+
+    /**
+     * Helper function to the tests.
+     * @return Lines of a text data set, including the header.
+     */
+    private static List<String> readLines (File file) throws IOException {
+        return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    }
+
+    //Each game must be written as a whole once it is won, and games which aren't won mustn't be written
+    @Test public void testGamesWrittenInBatches() throws IOException {
+        File file = Files.createTempFile("dataset", ".txt").toFile();
+        try {
+            try (GenerateDataSet dataSet = new GenerateDataSet(file.getPath(), GenerateDataSet.FlushPolicy.PER_GAME)) {
+                GameSimulator.GameObserver first = dataSet.forNewGame();
+                GameSimulator.GameObserver second = dataSet.forNewGame();
+                GameSimulator.GameObserver unfinished = dataSet.forNewGame();
+                first.onGameTurn(buildGameState(), MOVE_TO_36);
+                second.onGameTurn(buildGameState(), MOVE_TO_48);
+                unfinished.onGameTurn(buildGameState(), MOVE_TO_36);
+
+                second.onGameWin(buildGameState());
+                assertThat(readLines(file)).hasSize(2);
+                assertThat(readLines(file).get(1)).endsWith(",48");
+
+                first.onGameWin(buildGameState());
+                assertThat(readLines(file)).hasSize(3);
+                assertThat(readLines(file).get(2)).endsWith(",36");
+            }
+
+            assertThat(readLines(file)).hasSize(3);
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+
+    //With the ON_CLOSE policy, games must stay buffered until the data set is closed
+    @Test public void testOnCloseFlushPolicy() throws IOException {
+        File file = Files.createTempFile("dataset", ".txt").toFile();
+        try {
+            try (GenerateDataSet dataSet = new GenerateDataSet(file.getPath(), GenerateDataSet.FlushPolicy.ON_CLOSE)) {
+                GameSimulator.GameObserver game = dataSet.forNewGame();
+                game.onGameTurn(buildGameState(), MOVE_TO_36);
+                game.onGameWin(buildGameState());
+
+                assertThat(readLines(file)).hasSize(1);
+            }
+
+            assertThat(readLines(file)).hasSize(2);
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+
+    //With the PER_GAME policy, each game must be in the file as soon as it is won
+    @Test public void testPerGameFlushPolicy() throws IOException {
+        File file = Files.createTempFile("dataset", ".txt").toFile();
+        try (GenerateDataSet dataSet = new GenerateDataSet(file.getPath(), GenerateDataSet.FlushPolicy.PER_GAME)) {
+            GameSimulator.GameObserver game = dataSet.forNewGame();
+            game.onGameTurn(buildGameState(), MOVE_TO_36);
+            game.onGameWin(buildGameState());
+
+            assertThat(readLines(file)).hasSize(2);
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+
+    //With the PER_GAME_FSYNC policy, each game must be in the file as soon as it is won
+    @Test public void testPerGameFsyncFlushPolicy() throws IOException {
+        File file = Files.createTempFile("dataset", ".txt").toFile();
+        try (GenerateDataSet dataSet = new GenerateDataSet(file.getPath(), GenerateDataSet.FlushPolicy.PER_GAME_FSYNC)) {
+            GameSimulator.GameObserver game = dataSet.forNewGame();
+            game.onGameTurn(buildGameState(), MOVE_TO_36);
+            game.onGameWin(buildGameState());
+
+            assertThat(readLines(file)).hasSize(2);
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+
+    //A partly written row at the end of the data set must be skipped when reading
+    @Test public void testReadSkipsPartialRow() throws IOException {
+        File file = Files.createTempFile("dataset", ".txt").toFile();
+        try {
+            writeGame(file, MOVE_TO_36);
+            append(file, "35,50,53,91,94,103,1");
+
+            assertThat(countMoves(file, 36)).isEqualTo(1);
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+
+    //A partly written row must be removed before appending, so appended rows start on a new line
+    @Test public void testAppendAfterPartialRow() throws IOException {
+        File file = Files.createTempFile("dataset", ".txt").toFile();
+        try {
+            writeGame(file, MOVE_TO_36);
+            append(file, "35,50,53,91,94,103,1");
+            writeGame(file, MOVE_TO_48);
+
+            assertThat(readLines(file)).hasSize(3);
+            assertThat(countMoves(file, 36)).isEqualTo(1);
+            assertThat(countMoves(file, 48)).isEqualTo(1);
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+
+    //A partly written header must be written again in full
+    @Test public void testAppendAfterPartialHeader() throws IOException {
+        File file = Files.createTempFile("dataset", ".txt").toFile();
+        try {
+            append(file, "mrxlocation,detective");
+            writeGame(file, MOVE_TO_36);
+
+            assertThat(readLines(file).get(0)).startsWith("mrxlocation,detectivelocation1,");
+            assertThat(readLines(file)).hasSize(2);
+            assertThat(countMoves(file, 36)).isEqualTo(1);
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+
+    //Games appended as separate gzip members must all be read back, without rewriting the file
+    @Test public void testCompressedRoundTrip() throws IOException {
+        File file = Files.createTempFile("dataset", ".gz").toFile();
+        try {
+            writeGame(file, MOVE_TO_36);
+            writeGame(file, MOVE_TO_48);
+
+            assertThat(countMoves(file, 36)).isEqualTo(1);
+            assertThat(countMoves(file, 48)).isEqualTo(1);
+            assertThat(GenerateDataSet.repairCompressed(file)).isEqualTo(false);
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+
+    //A gzip member left unfinished by a crash must be readable, and games appended after it must be too
+    @Test public void testAppendAfterUnfinishedMember() throws IOException {
+        File file = Files.createTempFile("dataset", ".gz").toFile();
+        File crashedFile = Files.createTempFile("crashed", ".gz").toFile();
+        try {
+//          Copies the file while the member is still open, as a crash would leave it.
+            try (GenerateDataSet dataSet = new GenerateDataSet(file.getPath(), GenerateDataSet.FlushPolicy.PER_GAME)) {
+                GameSimulator.GameObserver game = dataSet.forNewGame();
+                game.onGameTurn(buildGameState(), MOVE_TO_36);
+                game.onGameWin(buildGameState());
+                Files.write(crashedFile.toPath(), Files.readAllBytes(file.toPath()));
+            }
+
+            assertThat(countMoves(crashedFile, 36)).isEqualTo(1);
+
+            writeGame(crashedFile, MOVE_TO_48);
+
+            assertThat(countMoves(crashedFile, 36)).isEqualTo(1);
+            assertThat(countMoves(crashedFile, 48)).isEqualTo(1);
+            assertThat(GenerateDataSet.repairCompressed(crashedFile)).isEqualTo(false);
+        } finally {
+            Files.delete(file.toPath());
+            Files.delete(crashedFile.toPath());
+        }
+    }
+}
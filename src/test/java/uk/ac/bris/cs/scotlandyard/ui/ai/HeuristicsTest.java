@@ -11,6 +11,7 @@ import uk.ac.bris.cs.scotlandyard.model.*;
 import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
 import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
 import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
 import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.GREEN;
@@ -651,4 +652,30 @@ public class HeuristicsTest extends AITestBase {
         assertThat(coalitionReduction.calculateValue(Red,MrX))
                 .isEqualTo(0);
     }
+
+    /**
+     * Move priors must form a probability distribution, with the moves ordered so that the most
+     * promising move is last.
+     * */
+    @Test public void testMovePriorsOrderedDistribution(){
+        PossibleLocations possibleLocations = getPossibleLocationsFactory().buildInitialLocations();
+        Board.GameState gameState = MyGameStateFactory.a(
+                standard24MoveSetup(),
+                new Player(MRX, defaultMrXTickets(), 35),
+                ImmutableList.of(new Player(RED, defaultDetectiveTickets(), 50))
+        );
+
+        AIGameState detectiveGameState = aiGameStateFactory()
+                .buildDetectiveGameStates(gameState, possibleLocations).get(0).left();
+        List<Move> moves = new ArrayList<>(detectiveGameState.getAvailableMoves());
+
+        double[] priors = new Heuristics.MovePriors()
+                .orderMovesAndCalculatePriors(moves, detectiveGameState, possibleLocations);
+
+        assertThat(priors.length).isEqualTo(moves.size());
+        assertThat(Arrays.stream(priors).sum()).isCloseTo(1.0, within(1e-9));
+        for (int i = 1; i < priors.length; i++) {
+            assertThat(priors[i]).isGreaterThanOrEqualTo(priors[i - 1]);
+        }
+    }
 }
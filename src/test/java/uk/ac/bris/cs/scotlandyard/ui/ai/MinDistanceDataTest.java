@@ -0,0 +1,114 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import org.junit.Test;
+import uk.ac.bris.cs.scotlandyard.ui.ai.Heuristics.LocationCategorization.MinDistance;
+import uk.ac.bris.cs.scotlandyard.ui.ai.Heuristics.LocationCategorization.MinDistanceData;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests counting and saving the hits of each min-distance category with {@link MinDistanceData}.
+ */
+public class MinDistanceDataTest {
+    private static final int THREADS = 8;
+    private static final int UPDATES_PER_THREAD = 10_000;
+
+    /**
+     * Helper function to the tests. Deletes the directory and the files in it.
+     */
+    private static void deleteDirectory (Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    //Hits and misses added from several threads at once must all be counted
+    @Test public void testConcurrentCounts() throws InterruptedException {
+        MinDistanceData data = MinDistanceData.buildInitial();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < UPDATES_PER_THREAD; j++) {
+                    data.addHit(MinDistance.ONE);
+                    data.addMiss(MinDistance.ONE);
+                    data.addMiss(MinDistance.TWO);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) thread.join();
+
+        long updates = (long) THREADS * UPDATES_PER_THREAD;
+        assertThat(data.getTotalHits(MinDistance.ONE)).isEqualTo(updates);
+        assertThat(data.getTotalPossible(MinDistance.ONE)).isEqualTo(updates);
+        assertThat(data.getTotalHits(MinDistance.TWO)).isEqualTo(0);
+        assertThat(data.getTotalPossible(MinDistance.TWO)).isEqualTo(updates);
+        assertThat(data.getHitProbability(MinDistance.ONE)).isEqualTo(1.0);
+        assertThat(data.getHitProbability(MinDistance.TWO)).isEqualTo(0.0);
+    }
+
+    //Every count written must be read back unchanged, replacing the old file without leaving temporary files
+    @Test public void testRoundTrip() throws IOException {
+        Path directory = Files.createTempDirectory("min-distance");
+        try {
+            File file = directory.resolve("min-distance-data.txt").toFile();
+            MinDistanceData data = MinDistanceData.buildInitial();
+            data.writeToFile(file);
+
+            for (MinDistance category : MinDistance.values()) {
+                for (int i = 0; i <= category.ordinal(); i++) data.addMiss(category);
+                data.addHit(category);
+            }
+            data.writeToFile(file);
+
+            MinDistanceData readData = MinDistanceData.buildFromContinuedFile(file);
+            for (MinDistance category : MinDistance.values()) {
+                assertThat(readData.getTotalHits(category)).isEqualTo(1);
+                assertThat(readData.getTotalPossible(category)).isEqualTo(category.ordinal() + 1);
+            }
+            try (Stream<Path> files = Files.list(directory)) {
+                assertThat(files.toList()).containsExactly(file.toPath());
+            }
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    //Hits added after the total possible was read must not be written as more hits than possible
+    @Test public void testWrittenHitsClamped() throws IOException {
+        Path directory = Files.createTempDirectory("min-distance");
+        try {
+            File file = directory.resolve("min-distance-data.txt").toFile();
+            MinDistanceData data = MinDistanceData.buildInitial();
+            data.addMiss(MinDistance.THREE);
+            data.addHit(MinDistance.THREE);
+            data.addHit(MinDistance.THREE);
+            data.writeToFile(file);
+
+            MinDistanceData readData = MinDistanceData.buildFromContinuedFile(file);
+            assertThat(readData.getTotalHits(MinDistance.THREE)).isEqualTo(1);
+            assertThat(readData.getHitProbability(MinDistance.THREE)).isEqualTo(1.0);
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+}
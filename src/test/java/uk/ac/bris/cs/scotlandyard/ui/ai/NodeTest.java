@@ -1,6 +1,7 @@
 package uk.ac.bris.cs.scotlandyard.ui.ai;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import org.junit.Test;
 import uk.ac.bris.cs.scotlandyard.model.*;
 
@@ -130,5 +131,152 @@ public class NodeTest extends AITestBase{
         assertThat(pieceToTest5).isEqualTo(YELLOW);
     }
 
+    //Progressive widening only allows as many children as the visits to the node permit.
+    @Test
+    public void verifyProgressiveWideningLimitsChildren(){
+        Node node = constructStandardRootNode();
+        int maxChildren = new Heuristics.ProgressiveWidening().getMaxChildren(node.getTotalPlays());
+
+        for (int i = 0; i < maxChildren; i++) {
+            assertThat(node.isFullyExpanded()).isEqualTo(false);
+            //Should always expand while the limit hasn't been reached
+            assertThat(node.expandOrSelect().right()).isEqualTo(false);
+        }
+
+        //No more children can be added until the node has been visited more
+        assertThat(node.isFullyExpanded()).isEqualTo(true);
+    }
+
+    //Back propagation through a child should count the child's move in the parent's AMAF statistics.
+    @Test
+    public void verifyBackPropagationUpdatesAmaf(){
+        Node rootNode = constructStandardRootNode();
+        Node childNode = rootNode.expandOrSelect().left();
+        int destination = childNode.getPreviousMove().accept(new MoveVisitors.DestinationVisitor());
+
+        assertThat(rootNode.getAmafPlays(destination)).isEqualTo(0);
+
+        childNode.backPropagation(MRX, new Node.PlayoutTrace());
+
+        assertThat(rootNode.getAmafPlays(destination)).isEqualTo(1);
+    }
+
+    //Leaves have no children to select between, so they must not collect AMAF statistics.
+    @Test
+    public void verifyLeafDoesNotCollectAmaf(){
+        Node rootNode = constructStandardRootNode();
+        Node childNode = rootNode.expandOrSelect().left();
+
+        Node.PlayoutTrace playoutTrace = new Node.PlayoutTrace();
+        playoutTrace.add(new Move.SingleMove(childNode.getPiece(), 1, Ticket.TAXI, 8));
+        childNode.backPropagation(MRX, playoutTrace);
+
+        assertThat(childNode.getAmafPlays(8)).isEqualTo(0);
+    }
+
+    //A detective next to Mr X can always capture him, so the search should prove the win and pick the capture.
+    @Test
+    public void verifySolverProvesCapture(){
+        PossibleLocations possibleLocations = getPossibleLocationsFactory().buildInitialLocations();
+        AIGameState gameState = aiGameStateFactory().build(
+                standard24MoveSetup(),
+                new Player(MRX, defaultMrXTickets(), 35),
+                ImmutableList.of(new Player(RED, defaultDetectiveTickets(), 37))
+        );
+        gameState = gameState.advance(new Move.SingleMove(MRX, 35, Ticket.TAXI, 36));
+        possibleLocations = possibleLocations.updateLocations(gameState);
+
+        Node rootNode = new Node(
+                gameState,
+                possibleLocations,
+                new SearchConfiguration(new Heuristics.MovePriors())
+        );
+
+        MCTS mcts = new MCTS(rootNode);
+        for (int i = 0; i < 100 && !rootNode.isSolved(); i++) {
+            mcts.run();
+        }
+
+        assertThat(rootNode.isSolved()).isEqualTo(true);
+        assertThat(rootNode.getProvenWinner()).contains(RED);
+        assertThat(rootNode.getBestChild().getPreviousMove())
+                .isEqualTo(new Move.SingleMove(RED, 37, Ticket.TAXI, 36));
+    }
+
+    /**
+     * Helper function to the early stop tests. RED is at 13 with one taxi and one bus ticket after
+     * Mr X's first move. Taxis to 4 and 24 leave RED without a move, so they are proven losses, while
+     * the taxi to 23 and the bus to 52 aren't. Every move is added as a child.
+     */
+    private static Node buildEarlyStopTree(){
+        PossibleLocations possibleLocations = getPossibleLocationsFactory().buildInitialLocations();
+        AIGameState gameState = aiGameStateFactory().build(
+                standard24MoveSetup(),
+                new Player(MRX, defaultMrXTickets(), 35),
+                ImmutableList.of(new Player(
+                        RED,
+                        ImmutableMap.of(Ticket.TAXI, 1, Ticket.BUS, 1, Ticket.UNDERGROUND, 0, Ticket.DOUBLE, 0, Ticket.SECRET, 0),
+                        13
+                ))
+        );
+        gameState = gameState.advance(new Move.SingleMove(MRX, 35, Ticket.TAXI, 36));
+        possibleLocations = possibleLocations.updateLocations(gameState);
+
+        Properties properties = new Properties();
+        properties.setProperty(SearchConfiguration.WIDENING_COEFFICIENT_PROPERTY, "1000");
+        Node rootNode = new Node(
+                gameState,
+                possibleLocations,
+                SearchConfiguration.fromProperties(properties, new Heuristics.MovePriors())
+        );
+        while (!rootNode.isFullyExpanded()) rootNode.expandOrSelect();
+        return rootNode;
+    }
+
+    /**
+     * Helper function to the early stop tests. Back-propagates Mr X wins through RED's move.
+     */
+    private static void addPlays(Node rootNode, Ticket ticket, int destination, int plays){
+        Node childNode = rootNode.getChild(new Move.SingleMove(RED, 13, ticket, destination)).orElseThrow();
+        for (int i = 0; i < plays; i++) {
+            childNode.backPropagation(MRX);
+        }
+    }
+
+    //A lead which can't be overtaken in the remaining plays should end the search early.
+    @Test
+    public void verifyUnassailableLeadIsDecided(){
+        Node rootNode = buildEarlyStopTree();
+        addPlays(rootNode, Ticket.BUS, 52, 100);
+        addPlays(rootNode, Ticket.TAXI, 23, 10);
+
+        assertThat(rootNode.isBestChildDecided(50)).isEqualTo(true);
+    }
+
+    //A lead which can still be overtaken in the remaining plays shouldn't end the search.
+    @Test
+    public void verifyAssailableLeadIsNotDecided(){
+        Node rootNode = buildEarlyStopTree();
+        addPlays(rootNode, Ticket.BUS, 52, 100);
+        addPlays(rootNode, Ticket.TAXI, 23, 10);
+
+        assertThat(rootNode.isBestChildDecided(100)).isEqualTo(false);
+    }
+
+    //A proven loss is never chosen, so its plays shouldn't count towards the lead however many it has.
+    @Test
+    public void verifyProvenLossIsIgnored(){
+        Node rootNode = buildEarlyStopTree();
+        assertThat(rootNode.getChild(new Move.SingleMove(RED, 13, Ticket.TAXI, 4)).orElseThrow().getProvenWinner())
+                .contains(MRX);
+
+        addPlays(rootNode, Ticket.TAXI, 4, 1000);
+        addPlays(rootNode, Ticket.BUS, 52, 100);
+        addPlays(rootNode, Ticket.TAXI, 23, 10);
+
+        assertThat(rootNode.isBestChildDecided(500)).isEqualTo(false);
+        assertThat(rootNode.isBestChildDecided(50)).isEqualTo(true);
+    }
+
 
 }
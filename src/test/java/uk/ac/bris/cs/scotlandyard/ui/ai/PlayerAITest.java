@@ -0,0 +1,48 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import org.junit.Test;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests running searches on the shared pool of {@link SearchExecutor}.
+ */
+public class PlayerAITest extends AITestBase {
+
+    //A search must end at its time limit when other searches are using every thread of the pool,
+    //rather than waiting for its queued workers to start
+    @Test public void testSearchEndsWithSaturatedPool() throws InterruptedException {
+        SearchExecutor searchExecutor = SearchExecutor.acquire();
+        CountDownLatch running = new CountDownLatch(searchExecutor.getWorkerCount());
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            //With only this handle held, a worker is submitted for every thread of the pool
+            for (int i = 0; i < searchExecutor.getWorkerCount(); i++) {
+                searchExecutor.submitWorker(() -> {
+                    running.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+            Node tree = constructStandardRootNode();
+            long startTime = System.currentTimeMillis();
+            Move move = PlayerAI.runMCTS(tree, 100, searchExecutor);
+            long elapsedTime = System.currentTimeMillis() - startTime;
+
+            assertThat(elapsedTime).isLessThan(1000);
+            assertThat(tree.getGameState().orElseThrow().getAvailableMoves()).contains(move);
+        } finally {
+            release.countDown();
+            searchExecutor.release();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+import io.atlassian.fugue.Pair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.bris.cs.scotlandyard.model.*;
+
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.*;
+
+/**
+ * Tests reusing the tree searched while the other players move with {@link Ponderer}.
+ */
+public class PondererTest extends AITestBase {
+    private SearchExecutor searchExecutor;
+    private CountDownLatch release;
+    private Ponderer ponderer;
+
+    //Every thread of the pool is kept busy, so pondering never starts and the trees only contain
+    //the nodes added by the tests
+    @Before
+    public void startPonderer () throws InterruptedException {
+        this.searchExecutor = SearchExecutor.acquire();
+        this.release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(this.searchExecutor.getWorkerCount());
+        for (int i = 0; i < this.searchExecutor.getWorkerCount(); i++) {
+            this.searchExecutor.submitWorker(() -> {
+                running.countDown();
+                try {
+                    this.release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+        this.ponderer = new Ponderer(this.searchExecutor);
+    }
+
+    @After
+    public void stopPonderer () {
+        this.ponderer.stop();
+        this.release.countDown();
+        this.searchExecutor.release();
+    }
+
+    /**
+     * Helper function to the tests. Mr X starts at 35, RED at 13 and BLUE at 67.
+     */
+    private static Board.GameState buildModelState () {
+        return getGameStateFactory().build(
+                standard24MoveSetup(),
+                new Player(MRX, defaultMrXTickets(), 35),
+                ImmutableList.of(
+                        new Player(RED, defaultDetectiveTickets(), 13),
+                        new Player(BLUE, defaultDetectiveTickets(), 67)
+                )
+        );
+    }
+
+    /**
+     * Helper function to the tests. Mr X's tree, which adds every move as a child rather than
+     * widening progressively, so that the tree doesn't depend on the search.
+     */
+    private static Node buildTree (AIGameState gameState) {
+        Properties properties = new Properties();
+        properties.setProperty(SearchConfiguration.WIDENING_COEFFICIENT_PROPERTY, "1000");
+        return new Node(
+                gameState,
+                getPossibleLocationsFactory().buildInitialLocations(),
+                SearchConfiguration.fromProperties(properties, new Heuristics.MovePriors())
+        );
+    }
+
+    /**
+     * Helper function to the tests. Adds every move of the node as a child, then finds a child.
+     * @param node Node to expand
+     * @param gameState Game state of the node
+     * @param piece Piece making the move
+     * @param condition Condition the move must meet
+     * @return First move of the piece meeting the condition.
+     */
+    private static Move expandAndFind (Node node, AIGameState gameState, Piece piece, Predicate<Move> condition) {
+        while (!node.isFullyExpanded()) node.expandOrSelect();
+        return gameState.getAvailableMoves().stream()
+                .filter(m -> m.commencedBy().equals(piece))
+                .filter(condition)
+                .filter(m -> node.getChild(m).isPresent())
+                .findFirst()
+                .orElseThrow();
+    }
+
+    /**
+     * Helper function to the tests.
+     * @return Possible locations of Mr X as seen by the detectives on the board.
+     */
+    private static PossibleLocations getPossibleLocations (Board board) {
+        PossibleLocations possibleLocations = getPossibleLocationsFactory().buildInitialLocations();
+        return possibleLocations.updateLocations(board);
+    }
+
+    /**
+     * Helper function to the tests. Ponders after Mr X's move, expands RED's move then BLUE's move
+     * in the tree, and makes them on the board in the opposite order.
+     * @return Node the moves lead to, paired with the node promoted from the board after them.
+     */
+    private Pair<Node, Optional<Pair<Node, AIGameState>>> ponderAndPromote (Predicate<Move> mrXCondition,
+                                                                          Predicate<Move> redCondition,
+                                                                          Predicate<Move> blueCondition) {
+        Board.GameState modelState = buildModelState();
+        AIGameState gameState = aiGameStateFactory().buildMrXGameState(modelState);
+        Node tree = buildTree(gameState);
+
+        Move mrXMove = expandAndFind(tree, gameState, MRX, mrXCondition);
+        Node mrXNode = tree.getChild(mrXMove).orElseThrow();
+        AIGameState mrXGameState = gameState.advance(mrXMove);
+        Move redMove = expandAndFind(mrXNode, mrXGameState, RED, redCondition);
+        Node redNode = mrXNode.getChild(redMove).orElseThrow();
+        AIGameState redGameState = mrXGameState.advance(redMove);
+        Move blueMove = expandAndFind(redNode, redGameState, BLUE, blueCondition);
+        Node blueNode = redNode.getChild(blueMove).orElseThrow();
+
+        this.ponderer.start(tree, mrXMove, gameState);
+        Board.GameState board = modelState.advance(mrXMove).advance(blueMove).advance(redMove);
+        return new Pair<>(blueNode, this.ponderer.promote(board, getPossibleLocations(board)));
+    }
+
+    //Detectives' single moves must be matched whatever order they were made in
+    @Test public void testPromoteAfterSingleMoves(){
+        Pair<Node, Optional<Pair<Node, AIGameState>>> result = this.ponderAndPromote(
+                m -> m instanceof Move.SingleMove,
+                m -> m.tickets().iterator().next() == Ticket.BUS,
+                m -> m.tickets().iterator().next() == Ticket.TAXI
+        );
+
+        assertThat(result.right()).isPresent();
+        assertThat(result.right().get().left()).isSameAs(result.left());
+        assertThat(result.right().get().left().getParent()).isNull();
+        assertThat(result.right().get().right().getDetectiveLocations())
+                .isEqualTo(result.left().getGameState().orElseThrow().getDetectiveLocations());
+    }
+
+    //Detectives' moves must be matched after a double move by Mr X
+    @Test public void testPromoteAfterDoubleMove(){
+        Pair<Node, Optional<Pair<Node, AIGameState>>> result = this.ponderAndPromote(
+                m -> m instanceof Move.DoubleMove,
+                m -> m.tickets().iterator().next() == Ticket.TAXI,
+                m -> m.tickets().iterator().next() == Ticket.BUS
+        );
+
+        assertThat(result.right()).isPresent();
+        assertThat(result.right().get().left()).isSameAs(result.left());
+        assertThat(result.right().get().right().getMrXTravelLog()).hasSize(2);
+    }
+
+    //Detectives using the same kind of ticket must each be matched to their own move
+    @Test public void testPromoteAfterSameTickets(){
+        Pair<Node, Optional<Pair<Node, AIGameState>>> result = this.ponderAndPromote(
+                m -> m instanceof Move.SingleMove,
+                m -> m.tickets().iterator().next() == Ticket.TAXI,
+                m -> m.tickets().iterator().next() == Ticket.TAXI
+        );
+
+        assertThat(result.right()).isPresent();
+        assertThat(result.right().get().left()).isSameAs(result.left());
+    }
+
+    //Mr X's tree must not be reused if the location it assumed is no longer possible
+    @Test public void testPromoteImpossibleLocation(){
+        Board.GameState modelState = buildModelState();
+        AIGameState gameState = aiGameStateFactory().buildMrXGameState(modelState);
+        Node tree = buildTree(gameState);
+        Move mrXMove = expandAndFind(tree, gameState, MRX, m -> m instanceof Move.SingleMove);
+
+        this.ponderer.start(tree, mrXMove, gameState);
+        Board.GameState board = modelState.advance(mrXMove);
+
+        assertThat(this.ponderer.promote(board, getPossibleLocationsFactory().buildInitialLocations())).isEmpty();
+    }
+
+    //Moves which weren't searched must not be matched to another node, so that a new tree is built
+    @Test public void testPromoteUnsearchedMoves(){
+        Board.GameState modelState = buildModelState();
+        AIGameState gameState = aiGameStateFactory().buildMrXGameState(modelState);
+        Node tree = buildTree(gameState);
+        Move mrXMove = expandAndFind(tree, gameState, MRX, m -> m instanceof Move.SingleMove);
+
+        this.ponderer.start(tree, mrXMove, gameState);
+        Board.GameState mrXState = modelState.advance(mrXMove);
+        Board.GameState board = mrXState
+                .advance(mrXState.getAvailableMoves().stream().filter(m -> m.commencedBy().equals(RED)).findFirst().orElseThrow());
+        board = board
+                .advance(board.getAvailableMoves().stream().filter(m -> m.commencedBy().equals(BLUE)).findFirst().orElseThrow());
+
+        assertThat(this.ponderer.promote(board, getPossibleLocations(board))).isEmpty();
+        assertThat(this.ponderer.promote(board, getPossibleLocations(board))).isEmpty();
+    }
+
+    //Pondering must be limited to the iterations which fit in its share of the heap
+    @Test public void testMaxIterations(){
+        long maxMemory = 1L << 30;
+        assertThat(Ponderer.getMaxIterations(maxMemory))
+                .isEqualTo((int) (maxMemory * Ponderer.MEMORY_FRACTION / Ponderer.BYTES_PER_ITERATION));
+        assertThat(Ponderer.getMaxIterations(Long.MAX_VALUE)).isEqualTo(Integer.MAX_VALUE);
+        assertThat(Ponderer.getMaxIterations()).isPositive();
+    }
+}
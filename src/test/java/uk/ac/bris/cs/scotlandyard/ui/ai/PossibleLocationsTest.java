@@ -7,7 +7,10 @@ import uk.ac.bris.cs.scotlandyard.model.Move;
 import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
 import uk.ac.bris.cs.scotlandyard.model.Player;
 
+import java.util.Random;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
 import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
 import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
 import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
@@ -129,6 +132,25 @@ public class PossibleLocationsTest extends AITestBase{
                 .doesNotContain(66);
     }
 
+    //Detective moves which don't land on a possible location must leave the possible locations unchanged
+    @Test public void testDetectiveMoveKeepsPossibleLocations () {
+        PossibleLocations possibleLocations = getPossibleLocationsFactory().buildInitialLocations();
+        Board.GameState gameState = MyGameStateFactory.a(
+                standard24MoveSetup(),
+                new Player(MRX, defaultMrXTickets(), 35),
+                ImmutableList.of(new Player(RED, defaultDetectiveTickets(), 50))
+        );
+
+        gameState = gameState.advance(new Move.SingleMove(MRX, 35, Ticket.TAXI, 36));
+        possibleLocations = possibleLocations.updateLocations(gameState);
+        assertThat(possibleLocations.getLocations()).doesNotContain(49);
+
+        gameState = gameState.advance(new Move.SingleMove(RED, 50, Ticket.TAXI, 49));
+        PossibleLocations afterDetectiveMove = possibleLocations.updateLocations(gameState);
+
+        assertThat(afterDetectiveMove).isSameAs(possibleLocations);
+    }
+
     @Test public void testKnownLocationReducesPossibleLocations () {
         PossibleLocations possibleLocations = getPossibleLocationsFactory().buildInitialLocations();
         Board.GameState gameState = MyGameStateFactory.a(
@@ -345,4 +367,37 @@ public class PossibleLocationsTest extends AITestBase{
 //              Actual location, as well as all accessible locations from 22.
                 .contains(35, 34, 23, 11, 65, 3);
     }
+
+    //Mr X is equally likely to start at any of his starting locations
+    @Test public void testStartingProbabilitiesUniform () {
+        PossibleLocations possibleLocations = getPossibleLocationsFactory().buildInitialLocations();
+        for (int location : MRX_LOCATIONS) {
+            assertThat(possibleLocations.getProbability(location))
+                    .isCloseTo(1.0 / MRX_LOCATIONS.size(), within(1e-6));
+        }
+        assertThat(possibleLocations.getProbability(1)).isZero();
+    }
+
+    //Probabilities must sum to one, and only be positive for possible locations
+    @Test public void testProbabilitiesSumToOne () {
+        PossibleLocations possibleLocations = constructPossibleLocationsAfterMove(Ticket.TAXI, 36);
+
+        double totalProbability = 0;
+        for (int location : possibleLocations.getLocations()) {
+            assertThat(possibleLocations.getProbability(location)).isPositive();
+            totalProbability += possibleLocations.getProbability(location);
+        }
+        assertThat(totalProbability).isCloseTo(1.0, within(1e-5));
+        assertThat(possibleLocations.getProbability(50)).isZero();
+    }
+
+    //Sampled locations must be possible locations
+    @Test public void testSampleReturnsPossibleLocation () {
+        PossibleLocations possibleLocations = constructPossibleLocationsAfterMove(Ticket.SECRET, 36);
+
+        Random random = new Random(0);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(possibleLocations.getLocations()).contains(possibleLocations.sample(random));
+        }
+    }
 }
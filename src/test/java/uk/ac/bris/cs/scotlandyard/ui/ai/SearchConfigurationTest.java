@@ -0,0 +1,103 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests loading the parameters of the search heuristics from properties.
+ */
+public class SearchConfigurationTest {
+
+    //Parameters which are set must be used, and the others must keep their defaults
+    @Test public void testFromProperties(){
+        Properties properties = new Properties();
+        properties.setProperty(SearchConfiguration.EXPLORATION_MRX_PROPERTY, "0.5");
+        properties.setProperty(SearchConfiguration.COALITION_REDUCTION_PROPERTY, "0.25");
+        properties.setProperty(SearchConfiguration.EPSILON_PROPERTY, "0.1");
+        properties.setProperty(SearchConfiguration.RAVE_ENABLED_PROPERTY, "false");
+
+        SearchConfiguration configuration = SearchConfiguration.fromProperties(properties, new Heuristics.MovePriors());
+        SearchConfiguration defaults = new SearchConfiguration(new Heuristics.MovePriors());
+
+        assertThat(configuration.getExplorationCoefficient().getMrXCoefficient()).isEqualTo(0.5);
+        assertThat(configuration.getCoalitionReduction().getR()).isEqualTo(0.25);
+        assertThat(configuration.getEGreedyPlayouts().getEpsilon()).isEqualTo(0.1);
+        assertThat(configuration.getRave().isEnabled()).isFalse();
+
+        assertThat(configuration.getExplorationCoefficient().getDetectiveCoefficient())
+                .isEqualTo(defaults.getExplorationCoefficient().getDetectiveCoefficient());
+        assertThat(configuration.getProgressiveWidening().getCoefficient())
+                .isEqualTo(defaults.getProgressiveWidening().getCoefficient());
+        assertThat(configuration.getMovePriors().getTemperature())
+                .isEqualTo(defaults.getMovePriors().getTemperature());
+    }
+
+    //Parameters which aren't finite numbers must be rejected
+    @Test public void testInvalidProperty(){
+        Properties properties = new Properties();
+        properties.setProperty(SearchConfiguration.WIDENING_EXPONENT_PROPERTY, "half");
+
+        assertThatThrownBy(() -> SearchConfiguration.fromProperties(properties, new Heuristics.MovePriors()))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        properties.setProperty(SearchConfiguration.WIDENING_EXPONENT_PROPERTY, "Infinity");
+        assertThatThrownBy(() -> SearchConfiguration.fromProperties(properties, new Heuristics.MovePriors()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    //RAVE must only be enabled or disabled by true or false, not by any other value
+    @Test public void testInvalidBooleanProperty(){
+        Properties properties = new Properties();
+        properties.setProperty(SearchConfiguration.RAVE_ENABLED_PROPERTY, "flase");
+
+        assertThatThrownBy(() -> SearchConfiguration.fromProperties(properties, new Heuristics.MovePriors()))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        properties.setProperty(SearchConfiguration.RAVE_ENABLED_PROPERTY, " FALSE ");
+        assertThat(SearchConfiguration.fromProperties(properties, new Heuristics.MovePriors()).getRave().isEnabled())
+                .isFalse();
+    }
+
+    //An invalid parameter must only replace that parameter with its default, keeping the others
+    @Test public void testInvalidPropertyUsesDefault(){
+        Properties properties = new Properties();
+        properties.setProperty(SearchConfiguration.EXPLORATION_MRX_PROPERTY, "0.5");
+        properties.setProperty(SearchConfiguration.WIDENING_EXPONENT_PROPERTY, "half");
+        properties.setProperty(SearchConfiguration.COALITION_REDUCTION_PROPERTY, "NaN");
+        properties.setProperty(SearchConfiguration.RAVE_ENABLED_PROPERTY, "no");
+
+        SearchConfiguration configuration = SearchConfiguration.fromPropertiesOrDefaults(properties, new Heuristics.MovePriors());
+        SearchConfiguration defaults = new SearchConfiguration(new Heuristics.MovePriors());
+
+        assertThat(configuration.getExplorationCoefficient().getMrXCoefficient()).isEqualTo(0.5);
+        assertThat(configuration.getProgressiveWidening().getExponent())
+                .isEqualTo(defaults.getProgressiveWidening().getExponent());
+        assertThat(configuration.getCoalitionReduction().getR())
+                .isEqualTo(defaults.getCoalitionReduction().getR());
+        assertThat(configuration.getRave().isEnabled()).isEqualTo(defaults.getRave().isEnabled());
+    }
+
+    //A saved profile must load back to the same configuration
+    @Test public void testProfileRoundTrip() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(SearchConfiguration.EXPLORATION_DETECTIVE_PROPERTY, "2.5");
+        properties.setProperty(SearchConfiguration.WIDENING_EXPONENT_PROPERTY, "0.4");
+        Properties profile = SearchConfiguration.fromProperties(properties, new Heuristics.MovePriors()).toProperties();
+
+        File file = File.createTempFile("profile", ".properties");
+        file.deleteOnExit();
+        SearchConfiguration.saveProfile(profile, file, "Test profile");
+        Properties loaded = SearchConfiguration.loadProfile(file);
+
+        assertThat(loaded).isEqualTo(profile);
+        SearchConfiguration configuration = SearchConfiguration.fromProperties(loaded, new Heuristics.MovePriors());
+        assertThat(configuration.getExplorationCoefficient().getDetectiveCoefficient()).isEqualTo(2.5);
+        assertThat(configuration.getProgressiveWidening().getExponent()).isEqualTo(0.4);
+    }
+}
@@ -0,0 +1,103 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+import io.atlassian.fugue.Pair;
+import org.junit.Test;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.*;
+
+/**
+ * Tests splitting the time allowed for each move with {@link TimeManager}.
+ */
+public class TimeManagerTest extends AITestBase {
+    private static final TimeManager TIME_MANAGER = new TimeManager(200);
+
+    /**
+     * Helper function to the tests. Mr X starts at 35 and RED at 50, with Mr X to move.
+     * @param reveals Whether Mr X is revealed on each round of the game
+     */
+    private static AIGameState buildGameState (Boolean... reveals) {
+        return aiGameStateFactory().build(
+                new GameSetup(standardGraph(), ImmutableList.copyOf(reveals)),
+                new Player(MRX, defaultMrXTickets(), 35),
+                ImmutableList.of(new Player(RED, defaultDetectiveTickets(), 50))
+        );
+    }
+
+    /**
+     * Helper function to the tests. Mr X moves from 35 to 36, with RED to move.
+     */
+    private static AIGameState buildDetectiveGameState (Boolean... reveals) {
+        return buildGameState(reveals).advance(new Move.SingleMove(MRX, 35, Ticket.TAXI, 36));
+    }
+
+    /**
+     * Helper function to the tests.
+     * @return Possible locations with the given number of locations.
+     */
+    private static PossibleLocations getLocations (int count) {
+        return getFixedLocations(IntStream.rangeClosed(1, count).boxed().toList());
+    }
+
+    //Mr X must use all of his time on a reveal round and the round before it, and less otherwise
+    @Test public void testMrXRevealRounds(){
+        PossibleLocations locations = getLocations(100);
+
+        assertThat(TIME_MANAGER.getImportance(buildGameState(true, false, false, false, false, false), locations))
+                .isEqualTo(1.0);
+        assertThat(TIME_MANAGER.getImportance(buildGameState(false, true, false, false, false, false), locations))
+                .isEqualTo(1.0);
+        assertThat(TIME_MANAGER.getImportance(buildGameState(false, false, true, false, false, false), locations))
+                .isEqualTo(TimeManager.MINIMUM_IMPORTANCE);
+    }
+
+    //Detectives must use more of their time the fewer locations Mr X could be in
+    @Test public void testDetectivePossibleLocations(){
+        AIGameState gameState = buildDetectiveGameState(false, false, false, false, false, false);
+
+        assertThat(TIME_MANAGER.getImportance(gameState, getLocations(TimeManager.FEW_POSSIBLE_LOCATIONS)))
+                .isEqualTo(1.0);
+        assertThat(TIME_MANAGER.getImportance(gameState, getLocations(1))).isEqualTo(1.0);
+        assertThat(TIME_MANAGER.getImportance(gameState, getLocations(2 * TimeManager.FEW_POSSIBLE_LOCATIONS)))
+                .isCloseTo(0.75, within(1e-9));
+        assertThat(TIME_MANAGER.getImportance(gameState, getLocations(100)))
+                .isCloseTo(0.55, within(1e-9));
+    }
+
+    //Every move in the last rounds must use all of the time, whoever is moving
+    @Test public void testEndgameRounds(){
+        PossibleLocations locations = getLocations(100);
+
+        assertThat(TIME_MANAGER.getImportance(buildGameState(false, false, false), locations)).isEqualTo(1.0);
+        assertThat(TIME_MANAGER.getImportance(buildGameState(false, false, false, false), locations))
+                .isEqualTo(TimeManager.MINIMUM_IMPORTANCE);
+        assertThat(TIME_MANAGER.getImportance(buildDetectiveGameState(false, false, false, false), locations))
+                .isEqualTo(1.0);
+        assertThat(TIME_MANAGER.getImportance(buildDetectiveGameState(false, false, false, false, false), locations))
+                .isCloseTo(0.55, within(1e-9));
+    }
+
+    //The buffer must be kept back from the time limit before it is scaled
+    @Test public void testTimeForMove(){
+        PossibleLocations locations = getLocations(100);
+        AIGameState importantState = buildGameState(true, false, false, false, false, false);
+        AIGameState unimportantState = buildGameState(false, false, true, false, false, false);
+
+        assertThat(TIME_MANAGER.getTimeForMove(importantState, locations, new Pair<>(1L, TimeUnit.SECONDS)))
+                .isEqualTo(800);
+        assertThat(TIME_MANAGER.getTimeForMove(unimportantState, locations, new Pair<>(1L, TimeUnit.SECONDS)))
+                .isEqualTo(400);
+        assertThat(TIME_MANAGER.getTimeForMove(importantState, locations, new Pair<>(100L, TimeUnit.MILLISECONDS)))
+                .isEqualTo(0);
+    }
+}